@@ -1,12 +1,20 @@
 package com.chs.productservice.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
+import software.amazon.awssdk.core.client.config.SdkAdvancedAsyncClientOption;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @Profile("!local")
@@ -15,9 +23,44 @@ public class AwsConfig {
     @Value("${aws.region}")
     private String awsRegion;
 
-    @Bean
-    public S3Client s3Client() {
-        return S3Client.builder()
+    @Value("${aws.s3.max-connections}")
+    private int s3MaxConnections;
+
+    @Value("${aws.s3.max-pending-connection-acquires}")
+    private int s3MaxPendingConnectionAcquires;
+
+    @Value("${aws.s3.connection-acquisition-timeout}")
+    private Duration s3ConnectionAcquisitionTimeout;
+
+    @Value("${aws.s3.event-loop-threads}")
+    private int s3EventLoopThreads;
+
+    /**
+     * Non-blocking S3 client: requests wait on a fixed number of Netty event loop threads instead of request threads
+     * Futures complete on the shared storage executor, so SDK threads never run blocking callbacks (e.g. JDBC)
+     */
+    @Bean(destroyMethod = "close")
+    public S3AsyncClient s3AsyncClient(@Qualifier("storageExecutor") ExecutorService storageExecutor) {
+        return S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(InstanceProfileCredentialsProvider.create())
+                // 同時進行的 S3 呼叫上限；超過的請求排隊等連線，排隊數也有上限
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(s3MaxConnections)
+                        .maxPendingConnectionAcquires(s3MaxPendingConnectionAcquires)
+                        .connectionAcquisitionTimeout(s3ConnectionAcquisitionTimeout)
+                        .eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(s3EventLoopThreads)))
+                .asyncConfiguration(config -> config.advancedOption(
+                        SdkAdvancedAsyncClientOption.FUTURE_COMPLETION_EXECUTOR, storageExecutor))
+                .build();
+    }
+
+    /**
+     * Signs upload / download URLs locally; no request is sent to S3
+     */
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        return S3Presigner.builder()
                 .region(Region.of(awsRegion))
                 .credentialsProvider(InstanceProfileCredentialsProvider.create())
                 .build();
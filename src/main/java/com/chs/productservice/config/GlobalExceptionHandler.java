@@ -8,6 +8,7 @@ import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -53,8 +54,9 @@ public class GlobalExceptionHandler {
     }
 
 
-    // Body JSON不合規語法 ｜ 參數使用無效格式 ｜ 嘗試修改dto以外的attribute
-    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class, UnrecognizedPropertyException.class})
+    // Body JSON不合規語法 ｜ 參數使用無效格式 ｜ 嘗試修改dto以外的attribute ｜ 缺少必要參數
+    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class, UnrecognizedPropertyException.class,
+            MissingServletRequestParameterException.class})
     public ResponseEntity<Map<String, Object>> handleBadRequestExceptions(Exception e) {
         log.warn("Bad request occurred: {}", e.getClass().getSimpleName());
 
@@ -2,6 +2,9 @@ package com.chs.productservice.config;
 
 import com.timgroup.statsd.NonBlockingStatsDClient;
 import com.timgroup.statsd.StatsDClient;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,4 +19,25 @@ public class MetricsConfig {
             8125             // port
         );
     }
+
+    @Bean
+    public StatsDHikariMetricsTrackerFactory hikariMetricsTrackerFactory(StatsDClient statsDClient) {
+        return new StatsDHikariMetricsTrackerFactory(statsDClient);
+    }
+
+    /**
+     * 所有 Hikari pool（含 read replica）在第一次取得連線前掛上 StatsD metrics
+     */
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor(ObjectProvider<StatsDHikariMetricsTrackerFactory> factory) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getMetricsTrackerFactory() == null) {
+                    dataSource.setMetricsTrackerFactory(factory.getObject());
+                }
+                return bean;
+            }
+        };
+    }
 }
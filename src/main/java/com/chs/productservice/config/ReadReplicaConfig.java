@@ -0,0 +1,125 @@
+package com.chs.productservice.config;
+
+import com.timgroup.statsd.StatsDClient;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Primary + read replica DataSources, only when product.datasource.replica.url is set
+ * The application DataSource is a LazyConnectionDataSourceProxy over a routing DataSource: the physical
+ * connection is only fetched at the first statement, after Spring has marked the transaction read-only
+ */
+@Configuration
+@ConditionalOnExpression("!'${product.datasource.replica.url:}'.isEmpty()")
+@Slf4j
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("product.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${product.datasource.replica.url}") String url,
+                                              @Value("${product.datasource.replica.username}") String username,
+                                              @Value("${product.datasource.replica.password}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaRouting readReplicaRouting(@Value("${product.datasource.replica.max-lag}") Duration maxLag,
+                                                 @Value("${product.datasource.replica.read-your-writes-window}") Duration readYourWritesWindow,
+                                                 StatsDClient statsDClient) {
+        return new ReadReplicaRouting(maxLag, readYourWritesWindow, statsDClient);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReadReplicaRouting routing) {
+        AbstractRoutingDataSource routingDataSource = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return routing.determineTarget();
+            }
+        };
+        routingDataSource.setTargetDataSources(Map.of(
+                ReadReplicaRouting.Target.PRIMARY, primaryDataSource,
+                ReadReplicaRouting.Target.REPLICA, replicaDataSource));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        log.info("Read replica routing enabled: read-only transactions use the replica");
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${product.datasource.replica.lag-query}") String lagQuery,
+                                               ReadReplicaRouting routing,
+                                               StatsDClient statsDClient) {
+        return new ReplicaLagMonitor(new JdbcTemplate(replicaDataSource), lagQuery, routing, statsDClient);
+    }
+
+    /**
+     * 定期量測 replica 落後 primary 的秒數，超過 max-lag 或查詢失敗時讀取改走 primary
+     */
+    @Slf4j
+    public static class ReplicaLagMonitor {
+
+        private final JdbcTemplate replicaJdbcTemplate;
+        private final String lagQuery;
+        private final ReadReplicaRouting routing;
+        private final StatsDClient statsDClient;
+
+        public ReplicaLagMonitor(JdbcTemplate replicaJdbcTemplate, String lagQuery,
+                                 ReadReplicaRouting routing, StatsDClient statsDClient) {
+            this.replicaJdbcTemplate = replicaJdbcTemplate;
+            this.lagQuery = lagQuery;
+            this.routing = routing;
+            this.statsDClient = statsDClient;
+        }
+
+        @Scheduled(fixedDelayString = "${product.datasource.replica.lag-check-interval}",
+                initialDelayString = "${product.datasource.replica.lag-check-interval}")
+        public void checkLag() {
+            try {
+                Double lagSeconds = replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+                Duration lag = Duration.ofMillis(Math.round((lagSeconds == null ? 0 : lagSeconds) * 1000));
+                statsDClient.recordGaugeValue("db.replica.lag.ms", lag.toMillis());
+                routing.updateReplicaLag(lag);
+            } catch (Exception e) {
+                statsDClient.incrementCounter("db.replica.lag.error");
+                log.warn("Read replica lag check failed: {}", e.getMessage());
+                routing.updateReplicaLag(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.chs.productservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timgroup.statsd.StatsDClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether the current connection goes to the primary or the read replica
+ * Read-only transactions use the replica unless it lags more than max-lag, or the current user wrote within the
+ * read-your-writes window; everything else, including statements outside a transaction, uses the primary
+ */
+@Slf4j
+public class ReadReplicaRouting {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Integer> FORCE_PRIMARY = ThreadLocal.withInitial(() -> 0);
+
+    private final Duration maxLag;
+    private final Cache<String, Boolean> recentWriters;
+    private final StatsDClient statsDClient;
+    private volatile boolean replicaAvailable = true;
+
+    public ReadReplicaRouting(Duration maxLag, Duration readYourWritesWindow, StatsDClient statsDClient) {
+        this.maxLag = maxLag;
+        this.statsDClient = statsDClient;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * 在 supplier 執行期間一律使用 primary（例如認證時讀取剛註冊或剛改密碼的使用者）
+     * 未設定 replica 時沒有任何效果
+     */
+    public static <T> T onPrimary(Supplier<T> supplier) {
+        FORCE_PRIMARY.set(FORCE_PRIMARY.get() + 1);
+        try {
+            return supplier.get();
+        } finally {
+            int depth = FORCE_PRIMARY.get() - 1;
+            if (depth == 0) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(depth);
+            }
+        }
+    }
+
+    public Target determineTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // 可寫入的交易：記錄使用者，之後 read-your-writes window 內的讀取也走 primary
+            String principal = currentPrincipal();
+            if (principal != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(principal, Boolean.TRUE);
+            }
+            return Target.PRIMARY;
+        }
+
+        if (FORCE_PRIMARY.get() > 0) {
+            return Target.PRIMARY;
+        }
+        if (!replicaAvailable) {
+            statsDClient.incrementCounter("db.replica.fallback.lag");
+            return Target.PRIMARY;
+        }
+
+        String principal = currentPrincipal();
+        if (principal != null && recentWriters.getIfPresent(principal) != null) {
+            statsDClient.incrementCounter("db.replica.fallback.readyourwrites");
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    /**
+     * 由 ReplicaLagMonitor 定期回報；lag 為 null 代表無法確認 replica 狀態
+     */
+    public void updateReplicaLag(Duration lag) {
+        boolean available = lag != null && lag.compareTo(maxLag) <= 0;
+        if (available != replicaAvailable) {
+            if (available) {
+                log.info("Read replica caught up (lag {}), routing read-only transactions to replica", lag);
+            } else {
+                log.warn("Read replica unavailable or lagging (lag {}, max {}), routing reads to primary", lag, maxLag);
+            }
+        }
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    private String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
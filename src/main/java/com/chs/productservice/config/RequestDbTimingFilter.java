@@ -0,0 +1,48 @@
+package com.chs.productservice.config;
+
+import com.timgroup.statsd.StatsDClient;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Records, per request, time spent waiting for a pooled connection versus executing SQL
+ * Runs before Spring Security so the authentication lookup is counted too
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class RequestDbTimingFilter extends OncePerRequestFilter {
+
+    private final StatsDClient statsDClient;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestDbTimings.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDbTimings timings = RequestDbTimings.finish();
+            // 沒有碰到資料庫的請求（health check 等）不計入，避免拉低分佈
+            if (timings != null && timings.getConnections() > 0) {
+                statsDClient.recordExecutionTime("request.db.connection.wait.time", timings.getConnectionWaitMillis());
+                statsDClient.recordExecutionTime("request.db.sql.time", timings.getSqlMillis());
+                statsDClient.count("request.db.statements", timings.getStatements());
+                log.debug("{} {} db: connections={} wait={}ms statements={} sql={}ms",
+                        request.getMethod(), request.getRequestURI(), timings.getConnections(),
+                        timings.getConnectionWaitMillis(), timings.getStatements(), timings.getSqlMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.chs.productservice.config;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate session listener (hibernate.session.events.auto) that adds connection acquisition and
+ * statement prepare / execute times to the current request's RequestDbTimings
+ * One instance per Session, so the start timestamps need no synchronization
+ */
+public class RequestDbTimingListener extends BaseSessionEventListener {
+
+    private long acquisitionStart;
+    private long prepareStart;
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        acquisitionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        RequestDbTimings timings = RequestDbTimings.current();
+        if (timings != null) {
+            timings.addConnectionWait(System.nanoTime() - acquisitionStart);
+        }
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        prepareStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        addSql(prepareStart, false);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        addSql(executeStart, true);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        addSql(batchStart, true);
+    }
+
+    private void addSql(long start, boolean statement) {
+        RequestDbTimings timings = RequestDbTimings.current();
+        if (timings != null) {
+            timings.addSql(System.nanoTime() - start, statement);
+        }
+    }
+}
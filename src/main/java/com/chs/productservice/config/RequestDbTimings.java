@@ -0,0 +1,65 @@
+package com.chs.productservice.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request totals of time spent waiting for a JDBC connection versus executing SQL
+ * Started and reported by RequestDbTimingFilter, filled in by RequestDbTimingListener on the request thread
+ */
+public final class RequestDbTimings {
+
+    private static final ThreadLocal<RequestDbTimings> CURRENT = new ThreadLocal<>();
+
+    private long connectionWaitNanos;
+    private long sqlNanos;
+    private int connections;
+    private int statements;
+
+    private RequestDbTimings() {
+    }
+
+    public static RequestDbTimings start() {
+        RequestDbTimings timings = new RequestDbTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static RequestDbTimings finish() {
+        RequestDbTimings timings = CURRENT.get();
+        CURRENT.remove();
+        return timings;
+    }
+
+    // 不在請求中（排程、背景工作）時為 null
+    static RequestDbTimings current() {
+        return CURRENT.get();
+    }
+
+    void addConnectionWait(long nanos) {
+        connectionWaitNanos += nanos;
+        connections++;
+    }
+
+    void addSql(long nanos, boolean statement) {
+        sqlNanos += nanos;
+        if (statement) {
+            statements++;
+        }
+    }
+
+    public long getConnectionWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(connectionWaitNanos);
+    }
+
+    public long getSqlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(sqlNanos);
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+}
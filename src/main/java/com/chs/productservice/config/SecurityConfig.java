@@ -57,7 +57,8 @@ public class SecurityConfig {
     @Bean
     public UserDetailsService userDetailsService() {
         return email -> {
-            var user = userService.findByEmail(email);
+            // 剛註冊或剛改密碼的使用者可能尚未同步到 read replica，認證一律讀 primary
+            var user = ReadReplicaRouting.onPrimary(() -> userService.findByEmail(email));
 
             // 轉換為 Spring Security 的 UserDetails
             return org.springframework.security.core.userdetails.User.builder()
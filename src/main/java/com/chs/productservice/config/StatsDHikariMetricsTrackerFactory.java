@@ -0,0 +1,74 @@
+package com.chs.productservice.config;
+
+import com.timgroup.statsd.StatsDClient;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends Hikari pool metrics through StatsD, per pool name (db.pool.primary.*, db.pool.replica.*)
+ * Acquire / usage / creation times are StatsD timers, so the agent turns them into percentiles;
+ * active / idle / pending / total connections are gauges sampled on product.metrics.db-pool.report-interval
+ */
+public class StatsDHikariMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    private final StatsDClient statsDClient;
+    private final Map<String, PoolStats> pools = new ConcurrentHashMap<>();
+
+    public StatsDHikariMetricsTrackerFactory(StatsDClient statsDClient) {
+        this.statsDClient = statsDClient;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String prefix = "db.pool." + poolName + ".";
+        pools.put(prefix, poolStats);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                statsDClient.recordExecutionTime(prefix + "connection.acquire.time",
+                        TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos));
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                statsDClient.recordExecutionTime(prefix + "connection.usage.time", elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                statsDClient.recordExecutionTime(prefix + "connection.create.time", connectionCreatedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                statsDClient.incrementCounter(prefix + "connection.timeout");
+            }
+
+            @Override
+            public void close() {
+                pools.remove(prefix);
+            }
+        };
+    }
+
+    /**
+     * pending > 0 代表有請求在等連線，pool 已飽和
+     */
+    @Scheduled(fixedDelayString = "${product.metrics.db-pool.report-interval}")
+    public void reportPoolStats() {
+        pools.forEach((prefix, stats) -> {
+            statsDClient.recordGaugeValue(prefix + "connections.active", stats.getActiveConnections());
+            statsDClient.recordGaugeValue(prefix + "connections.idle", stats.getIdleConnections());
+            statsDClient.recordGaugeValue(prefix + "connections.pending", stats.getPendingThreads());
+            statsDClient.recordGaugeValue(prefix + "connections.total", stats.getTotalConnections());
+            statsDClient.recordGaugeValue(prefix + "connections.max", stats.getMaxConnections());
+        });
+    }
+}
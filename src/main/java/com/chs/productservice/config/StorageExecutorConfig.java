@@ -0,0 +1,35 @@
+package com.chs.productservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class StorageExecutorConfig {
+
+    /**
+     * 完成 S3 非同步呼叫後的工作（寫入 image metadata 等）在這個固定大小的 pool 執行
+     * 執行緒數量不隨上傳並行數增加；虛擬執行緒模式下改用虛擬執行緒，數量同樣固定
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService storageExecutor(@Value("${aws.s3.completion-threads}") int threads,
+                                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("storage-", 1).factory();
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "storage-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+}
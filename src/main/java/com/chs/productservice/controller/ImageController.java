@@ -1,18 +1,25 @@
 package com.chs.productservice.controller;
 
 import com.chs.productservice.dto.ImageResponse;
+import com.chs.productservice.dto.ImageUploadUrlRequest;
+import com.chs.productservice.dto.ImageUploadUrlResponse;
+import com.chs.productservice.service.ETags;
 import com.chs.productservice.service.ImageService;
 import com.timgroup.statsd.StatsDClient;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/v1/product/{productId}/image")
@@ -23,8 +30,11 @@ public class ImageController {
     private final ImageService imageService;
     private final StatsDClient statsDClient;
 
+    /**
+     * 上傳在 S3 完成後才回應；等待期間請求執行緒已釋放（async request）
+     */
     @PostMapping
-    public ResponseEntity<ImageResponse> uploadImage(
+    public CompletableFuture<ResponseEntity<ImageResponse>> uploadImage(
             @PathVariable UUID productId,
             @RequestParam("file") MultipartFile file,
             Authentication authentication) {
@@ -35,37 +45,122 @@ public class ImageController {
             log.info("POST /v1/product/{}/image - Uploading image", productId);
 
             String authenticatedEmail = authentication.getName();
-            ImageResponse response = imageService.uploadImage(productId, file, authenticatedEmail);
+            return imageService.uploadImage(productId, file, authenticatedEmail)
+                    .whenComplete((response, error) -> {
+                        long duration = System.currentTimeMillis() - startTime;
+                        if (error != null) {
+                            statsDClient.incrementCounter("api.image.post.error");
+                            log.error("POST /v1/product/{}/image - Error: {} - {}ms", productId, error.getMessage(), duration, error);
+                        } else {
+                            statsDClient.recordExecutionTime("api.image.post.time", duration);
+                            log.info("POST /v1/product/{}/image - Image uploaded - {}ms", productId, duration);
+                        }
+                    })
+                    .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.image.post.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("POST /v1/product/{}/image - Error: {} - {}ms", productId, e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 預簽名上傳：回傳直接上傳到 S3 的 PUT URL，圖片在 complete 之前不會出現在清單中
+     */
+    @PostMapping("/upload-url")
+    public ResponseEntity<ImageUploadUrlResponse> createUploadUrl(
+            @PathVariable UUID productId,
+            @Valid @RequestBody ImageUploadUrlRequest request,
+            Authentication authentication) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.image.uploadurl.count");
+            log.info("POST /v1/product/{}/image/upload-url - Creating upload URL", productId);
+
+            String authenticatedEmail = authentication.getName();
+            ImageUploadUrlResponse response = imageService.createUploadUrl(productId, request, authenticatedEmail);
 
             long duration = System.currentTimeMillis() - startTime;
-            statsDClient.recordExecutionTime("api.image.post.time", duration);
-            log.info("POST /v1/product/{}/image - Image uploaded - {}ms", productId, duration);
+            statsDClient.recordExecutionTime("api.image.uploadurl.time", duration);
+            log.info("POST /v1/product/{}/image/upload-url - Upload URL created - {}ms", productId, duration);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (Exception e) {
-            statsDClient.incrementCounter("api.image.post.error");
+            statsDClient.incrementCounter("api.image.uploadurl.error");
             long duration = System.currentTimeMillis() - startTime;
-            log.error("POST /v1/product/{}/image - Error: {} - {}ms", productId, e.getMessage(), duration, e);
+            log.error("POST /v1/product/{}/image/upload-url - Error: {} - {}ms", productId, e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 預簽名上傳完成：S3 確認收到檔案後圖片才可見；等待 S3 期間請求執行緒已釋放
+     */
+    @PostMapping("/{imageId}/complete")
+    public CompletableFuture<ResponseEntity<ImageResponse>> completeUpload(
+            @PathVariable UUID productId,
+            @PathVariable UUID imageId,
+            Authentication authentication) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.image.complete.count");
+            log.info("POST /v1/product/{}/image/{}/complete - Completing upload", productId, imageId);
+
+            String authenticatedEmail = authentication.getName();
+            return imageService.completeUpload(productId, imageId, authenticatedEmail)
+                    .whenComplete((response, error) -> {
+                        long duration = System.currentTimeMillis() - startTime;
+                        if (error != null) {
+                            statsDClient.incrementCounter("api.image.complete.error");
+                            log.error("POST /v1/product/{}/image/{}/complete - Error: {} - {}ms", productId, imageId, error.getMessage(), duration, error);
+                        } else {
+                            statsDClient.recordExecutionTime("api.image.complete.time", duration);
+                            log.info("POST /v1/product/{}/image/{}/complete - Upload completed - {}ms", productId, imageId, duration);
+                        }
+                    })
+                    .thenApply(ResponseEntity::ok);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.image.complete.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("POST /v1/product/{}/image/{}/complete - Error: {} - {}ms", productId, imageId, e.getMessage(), duration, e);
             throw e;
         }
     }
 
     @GetMapping
-    public ResponseEntity<List<ImageResponse>> getProductImages(@PathVariable UUID productId) {
+    public ResponseEntity<List<ImageResponse>> getProductImages(@PathVariable UUID productId, WebRequest webRequest) {
         long startTime = System.currentTimeMillis();
 
         try {
             statsDClient.incrementCounter("api.image.getall.count");
             log.info("GET /v1/product/{}/image - Getting images", productId);
 
+            // 帶有 If-None-Match 時先以筆數 + 最新建立時間比對，未變更則不載入清單
+            if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                String eTag = imageService.getProductImagesETag(productId);
+                if (eTag != null && Representations.checkNotModified(webRequest, eTag)) {
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.incrementCounter("api.image.getall.notmodified");
+                    statsDClient.recordExecutionTime("api.image.getall.time", duration);
+                    log.info("GET /v1/product/{}/image - Not modified - {}ms", productId, duration);
+                    return null;
+                }
+            }
+
             List<ImageResponse> images = imageService.getProductImages(productId);
 
             long duration = System.currentTimeMillis() - startTime;
             statsDClient.recordExecutionTime("api.image.getall.time", duration);
             log.info("GET /v1/product/{}/image - Retrieved {} images - {}ms", productId, images.size(), duration);
 
-            return ResponseEntity.ok(images);
+            return Representations.ok(webRequest, ETags.forImageList(images))
+                    .body(images);
 
         } catch (Exception e) {
             statsDClient.incrementCounter("api.image.getall.error");
@@ -78,20 +173,33 @@ public class ImageController {
     @GetMapping("/{imageId}")
     public ResponseEntity<ImageResponse> getImageById(
             @PathVariable UUID productId,
-            @PathVariable UUID imageId) {
+            @PathVariable UUID imageId,
+            WebRequest webRequest) {
         long startTime = System.currentTimeMillis();
 
         try {
             statsDClient.incrementCounter("api.image.get.count");
             log.info("GET /v1/product/{}/image/{} - Getting image", productId, imageId);
 
+            if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                String eTag = imageService.getImageETag(productId, imageId);
+                if (eTag != null && Representations.checkNotModified(webRequest, eTag)) {
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.incrementCounter("api.image.get.notmodified");
+                    statsDClient.recordExecutionTime("api.image.get.time", duration);
+                    log.info("GET /v1/product/{}/image/{} - Not modified - {}ms", productId, imageId, duration);
+                    return null;
+                }
+            }
+
             ImageResponse response = imageService.getImageById(productId, imageId);
 
             long duration = System.currentTimeMillis() - startTime;
             statsDClient.recordExecutionTime("api.image.get.time", duration);
             log.info("GET /v1/product/{}/image/{} - Image retrieved - {}ms", productId, imageId, duration);
 
-            return ResponseEntity.ok(response);
+            return Representations.ok(webRequest, ETags.forImage(response))
+                    .body(response);
 
         } catch (Exception e) {
             statsDClient.incrementCounter("api.image.get.error");
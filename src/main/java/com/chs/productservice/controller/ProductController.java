@@ -1,17 +1,32 @@
 package com.chs.productservice.controller;
 
+import com.chs.productservice.dto.InventoryAdjustmentRequest;
+import com.chs.productservice.dto.InventoryAdjustmentResponse;
+import com.chs.productservice.dto.ProductBatchResponse;
+import com.chs.productservice.dto.ProductChangesResponse;
 import com.chs.productservice.dto.ProductCreateRequest;
+import com.chs.productservice.dto.ProductFilterRequest;
+import com.chs.productservice.dto.ProductPageResponse;
+import com.chs.productservice.dto.ProductQuantityAdjustRequest;
+import com.chs.productservice.dto.ProductQuantityResponse;
 import com.chs.productservice.dto.ProductResponse;
 import com.chs.productservice.dto.ProductUpdateRequest;
+import com.chs.productservice.service.ETags;
+import com.chs.productservice.service.ProductEventStream;
 import com.chs.productservice.service.ProductService;
 import com.timgroup.statsd.StatsDClient;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -22,7 +37,10 @@ import java.util.UUID;
 @Slf4j
 public class ProductController {
 
+    private static final String INCLUDE_IMAGES = "images";
+
     private final ProductService productService;
+    private final ProductEventStream productEventStream;
     private final StatsDClient statsDClient;
 
     @PostMapping
@@ -50,21 +68,98 @@ public class ProductController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createProducts(@RequestBody List<ProductCreateRequest> requests, Authentication authentication) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.product.batch.count");
+            log.info("POST /v1/product/batch - Creating {} products", requests.size());
+
+            String authenticatedEmail = authentication.getName();
+            ProductBatchResponse batchResponse = productService.createProducts(requests, authenticatedEmail);
+
+            long duration = System.currentTimeMillis() - startTime;
+            statsDClient.count("api.product.batch.created", batchResponse.getCreated());
+            statsDClient.count("api.product.batch.failed", batchResponse.getFailed());
+            statsDClient.recordExecutionTime("api.product.batch.time", duration);
+            log.info("POST /v1/product/batch - {} created, {} failed - {}ms",
+                    batchResponse.getCreated(), batchResponse.getFailed(), duration);
+
+            return ResponseEntity.ok(batchResponse);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.product.batch.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("POST /v1/product/batch - Error: {} - {}ms", e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
+    @PostMapping("/inventory/adjust")
+    public ResponseEntity<?> adjustInventory(@RequestBody List<InventoryAdjustmentRequest> requests, Authentication authentication) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.product.inventory.count");
+            log.info("POST /v1/product/inventory/adjust - Applying {} adjustments", requests.size());
+
+            String authenticatedEmail = authentication.getName();
+            InventoryAdjustmentResponse adjustmentResponse = productService.adjustInventory(requests, authenticatedEmail);
+
+            long duration = System.currentTimeMillis() - startTime;
+            statsDClient.count("api.product.inventory.applied", adjustmentResponse.getApplied());
+            statsDClient.count("api.product.inventory.failed", adjustmentResponse.getFailed());
+            statsDClient.recordExecutionTime("api.product.inventory.time", duration);
+            log.info("POST /v1/product/inventory/adjust - {} applied, {} failed - {}ms",
+                    adjustmentResponse.getApplied(), adjustmentResponse.getFailed(), duration);
+
+            return ResponseEntity.ok(adjustmentResponse);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.product.inventory.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("POST /v1/product/inventory/adjust - Error: {} - {}ms", e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable UUID id) {
+    public ResponseEntity<?> getProductById(@PathVariable UUID id,
+                                            @RequestParam(required = false) String include,
+                                            WebRequest webRequest) {
         long startTime = System.currentTimeMillis();
 
         try {
             statsDClient.incrementCounter("api.product.get.count");
             log.info("GET /v1/product/{} - Getting product", id);
 
+            boolean includeImages = includesImages(include);
+
+            // 帶有 If-None-Match 時先只比對版本，未變更則回傳 304 而不載入產品
+            // 附帶圖片時版本也取決於圖片，交由完整回應的 ETag 比對
+            if (!includeImages && webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                String eTag = productService.getProductETag(id);
+                if (eTag != null && Representations.checkNotModified(webRequest, eTag)) {
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.incrementCounter("api.product.get.notmodified");
+                    statsDClient.recordExecutionTime("api.product.get.time", duration);
+                    log.info("GET /v1/product/{} - Not modified - {}ms", id, duration);
+                    return null;
+                }
+            }
+
             ProductResponse productResponse = productService.getProductById(id);
+            if (includeImages) {
+                productResponse = productService.withImages(productResponse);
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             statsDClient.recordExecutionTime("api.product.get.time", duration);
             log.info("GET /v1/product/{} - Product retrieved - {}ms", id, duration);
 
-            return ResponseEntity.ok(productResponse);
+            return Representations.ok(webRequest, ETags.forProduct(productResponse))
+                    .body(productResponse);
 
         } catch (Exception e) {
             statsDClient.incrementCounter("api.product.get.error");
@@ -75,20 +170,31 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(
+            @Valid ProductFilterRequest filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String include,
+            WebRequest webRequest) {
         long startTime = System.currentTimeMillis();
 
         try {
             statsDClient.incrementCounter("api.product.getall.count");
             log.info("GET /v1/product - Getting all products");
 
-            List<ProductResponse> products = productService.getAllProducts();
+            boolean includeImages = includesImages(include);
+            ProductPageResponse page = productService.getAllProducts(filter, cursor, limit);
+            if (includeImages) {
+                page = productService.withImages(page);
+            }
 
             long duration = System.currentTimeMillis() - startTime;
             statsDClient.recordExecutionTime("api.product.getall.time", duration);
-            log.info("GET /v1/product - Retrieved {} products - {}ms", products.size(), duration);
+            log.info("GET /v1/product - Retrieved {} products - {}ms", page.getProducts().size(), duration);
 
-            return ResponseEntity.ok(products);
+            // 與 If-None-Match 相符時由 Spring 直接回傳 304，不會序列化 body
+            return Representations.ok(webRequest, ETags.forProductPage(page))
+                    .body(page);
 
         } catch (Exception e) {
             statsDClient.incrementCounter("api.product.getall.error");
@@ -98,8 +204,109 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.product.search.count");
+            log.info("GET /v1/product/search - Searching products: {}", q);
+
+            ProductPageResponse page = productService.searchProducts(q, cursor, limit);
+
+            long duration = System.currentTimeMillis() - startTime;
+            statsDClient.recordExecutionTime("api.product.search.time", duration);
+            log.info("GET /v1/product/search - Found {} products - {}ms", page.getProducts().size(), duration);
+
+            return ResponseEntity.ok(page);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.product.search.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("GET /v1/product/search - Error: {} - {}ms", e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + ProductService.MAX_PAGE_SIZE) int limit) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.product.changes.count");
+            log.info("GET /v1/product/changes - Getting changes");
+
+            ProductChangesResponse changes = productService.getChanges(since, limit);
+
+            long duration = System.currentTimeMillis() - startTime;
+            statsDClient.recordExecutionTime("api.product.changes.time", duration);
+            log.info("GET /v1/product/changes - Retrieved {} changes - {}ms", changes.getChanges().size(), duration);
+
+            return ResponseEntity.ok(changes);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.product.changes.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("GET /v1/product/changes - Error: {} - {}ms", e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges() {
+        statsDClient.incrementCounter("api.product.stream.count");
+        log.info("GET /v1/product/stream - Subscribing to product changes");
+
+        return productEventStream.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> {
+                    statsDClient.incrementCounter("api.product.stream.error");
+                    log.warn("GET /v1/product/stream - Subscriber limit reached");
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "30")
+                            .build();
+                });
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        statsDClient.incrementCounter("api.product.export.count");
+        log.info("GET /v1/product/export - Exporting products");
+
+        StreamingResponseBody body = outputStream -> {
+            long startTime = System.currentTimeMillis();
+
+            try {
+                long count = productService.exportProducts(outputStream);
+
+                long duration = System.currentTimeMillis() - startTime;
+                statsDClient.recordExecutionTime("api.product.export.time", duration);
+                log.info("GET /v1/product/export - Exported {} products - {}ms", count, duration);
+
+            } catch (Exception e) {
+                statsDClient.incrementCounter("api.product.export.error");
+                long duration = System.currentTimeMillis() - startTime;
+                log.error("GET /v1/product/export - Error: {} - {}ms", e.getMessage(), duration, e);
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/user")
-    public ResponseEntity<?> getUserProducts(Authentication authentication) {
+    public ResponseEntity<?> getUserProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit,
+            Authentication authentication,
+            WebRequest webRequest) {
         long startTime = System.currentTimeMillis();
 
         try {
@@ -107,13 +314,14 @@ public class ProductController {
             log.info("GET /v1/product/user - Getting user products");
 
             String authenticatedEmail = authentication.getName();
-            List<ProductResponse> products = productService.getProductsByUser(authenticatedEmail);
+            ProductPageResponse page = productService.getProductsByUser(authenticatedEmail, cursor, limit);
 
             long duration = System.currentTimeMillis() - startTime;
             statsDClient.recordExecutionTime("api.product.user.time", duration);
-            log.info("GET /v1/product/user - Retrieved {} products - {}ms", products.size(), duration);
+            log.info("GET /v1/product/user - Retrieved {} products - {}ms", page.getProducts().size(), duration);
 
-            return ResponseEntity.ok(products);
+            return Representations.ok(webRequest, ETags.forProductPage(page))
+                    .body(page);
 
         } catch (Exception e) {
             statsDClient.incrementCounter("api.product.user.error");
@@ -148,6 +356,31 @@ public class ProductController {
         }
     }
 
+    @PatchMapping("/{id}/quantity")
+    public ResponseEntity<?> adjustQuantity(@PathVariable UUID id, @Valid @RequestBody ProductQuantityAdjustRequest request, Authentication authentication) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            statsDClient.incrementCounter("api.product.quantity.count");
+            log.info("PATCH /v1/product/{}/quantity - Adjusting quantity by {}", id, request.getDelta());
+
+            String authenticatedEmail = authentication.getName();
+            ProductQuantityResponse quantityResponse = productService.adjustQuantity(id, request.getDelta(), authenticatedEmail);
+
+            long duration = System.currentTimeMillis() - startTime;
+            statsDClient.recordExecutionTime("api.product.quantity.time", duration);
+            log.info("PATCH /v1/product/{}/quantity - Quantity adjusted - {}ms", id, duration);
+
+            return ResponseEntity.ok(quantityResponse);
+
+        } catch (Exception e) {
+            statsDClient.incrementCounter("api.product.quantity.error");
+            long duration = System.currentTimeMillis() - startTime;
+            log.error("PATCH /v1/product/{}/quantity - Error: {} - {}ms", id, e.getMessage(), duration, e);
+            throw e;
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteProduct(@PathVariable UUID id, Authentication authentication) {
         long startTime = System.currentTimeMillis();
@@ -172,4 +405,19 @@ public class ProductController {
             throw e;
         }
     }
+
+    /**
+     * ?include=images 時在產品中附上圖片，目前只支援 images
+     */
+    private boolean includesImages(String include) {
+        if (include == null || include.isBlank()) {
+            return false;
+        }
+        for (String value : include.split(",")) {
+            if (!INCLUDE_IMAGES.equals(value.trim())) {
+                throw new IllegalArgumentException("Unsupported include: " + value.trim());
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,85 @@
+package com.chs.productservice.controller;
+
+import com.chs.productservice.service.ETags;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conditional GETs of resources served as JSON, CBOR or Smile (JacksonConfig)
+ * The representation is negotiated from Accept the same way the message converters pick one, its ETag carries the
+ * media type and every response (304 included) sends Vary: Accept, so a cache never answers one format with another
+ */
+final class Representations {
+
+    // 與 message converter 的順序相同：Accept 同樣接受多種格式時以 JSON 優先
+    private static final List<MediaType> PRODUCIBLE = List.of(
+            MediaType.APPLICATION_JSON,
+            new MediaType("application", "x-jackson-smile"),
+            MediaType.APPLICATION_CBOR);
+
+    private Representations() {
+    }
+
+    /**
+     * 與 If-None-Match 比對目前格式的 ETag；相符時 Spring 回傳 304
+     */
+    static boolean checkNotModified(WebRequest request, String eTag) {
+        varyByAccept(request);
+        return request.checkNotModified(eTag(request, eTag));
+    }
+
+    static ResponseEntity.BodyBuilder ok(WebRequest request, String eTag) {
+        return ResponseEntity.ok()
+                .eTag(eTag(request, eTag))
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    private static String eTag(WebRequest request, String eTag) {
+        return ETags.forRepresentation(eTag, negotiate(request));
+    }
+
+    static MediaType negotiate(WebRequest request) {
+        List<MediaType> accepted;
+        try {
+            String accept = request.getHeader(HttpHeaders.ACCEPT);
+            accepted = accept == null ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            accepted = List.of(MediaType.ALL);
+        }
+
+        List<MediaType> compatible = new ArrayList<>();
+        for (MediaType requested : accepted) {
+            for (MediaType producible : PRODUCIBLE) {
+                if (requested.isCompatibleWith(producible)) {
+                    compatible.add(producible.copyQualityValue(requested));
+                }
+            }
+        }
+        // 品質值優先，其次是具體程度；無法提供的格式由 Spring 回傳 406，這裡視為 JSON
+        MimeTypeUtils.sortBySpecificity(compatible);
+        return compatible.stream()
+                .filter(mediaType -> mediaType.getQualityValue() > 0)
+                .map(mediaType -> new MediaType(mediaType.getType(), mediaType.getSubtype()))
+                .findFirst()
+                .orElse(MediaType.APPLICATION_JSON);
+    }
+
+    // 304 直接由 checkNotModified 寫出，Vary 需要先設定在 response 上
+    private static void varyByAccept(WebRequest request) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+    }
+}
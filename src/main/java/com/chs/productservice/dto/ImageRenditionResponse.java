@@ -0,0 +1,19 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageRenditionResponse {
+    // 縮圖寬度（px），高度依原圖比例
+    private int width;
+    private String s3BucketPath;
+
+    // 與原圖的 downloadUrl 同時失效
+    private String downloadUrl;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Data
@@ -20,6 +21,13 @@ public class ImageResponse {
     private LocalDateTime dateCreated;
     private String s3BucketPath;
 
+    // 預簽名 GET URL，downloadUrlExpiresAt 之後失效，需重新取得圖片資訊
+    private String downloadUrl;
+    private LocalDateTime downloadUrlExpiresAt;
+
+    // 背景產生的縮圖，由小到大；尚未產生時為 null，原圖比所有尺寸都小時為空清單
+    private List<ImageRenditionResponse> renditions;
+
     // ImageResponse 的 from(Image image) 靜態方法是必要的，因為 Image 實體是它唯一且明確的資料來源。它是一個中間轉換層，用於將單個實體轉換成單個 DTO
     public static ImageResponse from(Image image) {
         return ImageResponse.builder()
@@ -0,0 +1,29 @@
+package com.chs.productservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadUrlRequest {
+
+    @NotBlank(message = "File name is required")
+    @Size(max = 255, message = "File name must not exceed 255 characters")
+    private String fileName;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    // 簽入預簽名 URL，S3 只接受同樣大小的上傳
+    @NotNull(message = "Content length is required")
+    @Positive(message = "Content length must be positive")
+    private Long contentLength;
+}
@@ -0,0 +1,26 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadUrlResponse {
+    private UUID imageId;
+    private UUID productId;
+    private String fileName;
+    private String s3BucketPath;
+
+    // 以 PUT 上傳檔案到 uploadUrl，並原樣帶上 uploadHeaders；完成後呼叫 POST .../image/{imageId}/complete
+    private String uploadUrl;
+    private Map<String, String> uploadHeaders;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,24 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One line of POST /v1/product/inventory/adjust, identifies the product by productId or sku
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryAdjustmentRequest {
+
+    private UUID productId;
+    private String sku;
+
+    // 正數為入庫，負數為出庫
+    private Integer delta;
+}
@@ -0,0 +1,31 @@
+package com.chs.productservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class InventoryAdjustmentResult {
+
+    public enum Status { APPLIED, FAILED }
+
+    private int index;
+    private UUID productId;
+    private String sku;
+    private Integer delta;
+    private Status status;
+
+    // 套用這一行之後的數量
+    private Integer quantity;
+
+    // 失敗時提供
+    private String error;
+}
@@ -0,0 +1,27 @@
+package com.chs.productservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductBatchItemResult {
+
+    public enum Status { CREATED, FAILED }
+
+    private int index;
+    private String sku;
+    private Status status;
+
+    // 建立成功時提供
+    private ProductResponse product;
+
+    // 建立失敗時提供
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResponse {
+
+    private int created;
+    private int failed;
+
+    // 與請求陣列順序相同
+    private List<ProductBatchItemResult> results;
+}
@@ -0,0 +1,28 @@
+package com.chs.productservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductChange {
+
+    // UPSERT 為新增或更新，DELETE 為已刪除（tombstone）
+    public enum Type { UPSERT, DELETE }
+
+    private Type type;
+    private UUID productId;
+    private LocalDateTime changedAt;
+
+    // 只有 UPSERT 時提供
+    private ProductResponse product;
+}
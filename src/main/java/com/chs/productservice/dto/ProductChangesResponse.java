@@ -0,0 +1,24 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesResponse {
+
+    // 依 changedAt、productId 由舊到新
+    private List<ProductChange> changes;
+
+    // 下次輪詢時作為 since 傳回，沒有新變更時與本次的 since 相同
+    private String nextCursor;
+
+    // true 代表還有更多變更，應立即以 nextCursor 再次查詢
+    private boolean hasMore;
+}
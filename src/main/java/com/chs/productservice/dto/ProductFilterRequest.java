@@ -0,0 +1,44 @@
+package com.chs.productservice.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Query parameters of GET /v1/product, every filter is optional
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterRequest {
+
+    private String manufacturer;
+
+    // 精確數量，quantity=0 代表缺貨
+    @Min(value = 0, message = "Quantity cannot be less than 0")
+    private Integer quantity;
+
+    @Min(value = 0, message = "Quantity cannot be less than 0")
+    private Integer minQuantity;
+
+    @Min(value = 0, message = "Quantity cannot be less than 0")
+    private Integer maxQuantity;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime addedAfter;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime addedBefore;
+
+    private UUID ownerId;
+
+    // dateAdded（預設，由舊到新）或 -dateAdded（由新到舊）
+    private String sort;
+}
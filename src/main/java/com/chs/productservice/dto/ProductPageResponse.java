@@ -0,0 +1,20 @@
+package com.chs.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageResponse {
+
+    private List<ProductResponse> products;
+
+    // null 代表已經是最後一頁
+    private String nextCursor;
+}
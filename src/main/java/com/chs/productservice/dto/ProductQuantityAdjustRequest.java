@@ -0,0 +1,18 @@
+package com.chs.productservice.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductQuantityAdjustRequest {
+
+    // 正數為入庫，負數為出庫
+    @NotNull(message = "Delta is required")
+    private Integer delta;
+}
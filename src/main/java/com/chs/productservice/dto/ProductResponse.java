@@ -1,15 +1,17 @@
 package com.chs.productservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductResponse {
@@ -23,4 +25,8 @@ public class ProductResponse {
     private LocalDateTime dateAdded;
     private LocalDateTime dateLastUpdated;
     private UUID ownerUserId;
+
+    // 只有 ?include=images 時才提供
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ImageResponse> images;
 }
@@ -0,0 +1,34 @@
+package com.chs.productservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A committed product or image change, published by the services and pushed to GET /v1/product/stream
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductStreamEvent {
+
+    public enum Type { PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED, IMAGE_ADDED, IMAGE_UPDATED, IMAGE_REMOVED }
+
+    private Type type;
+    private UUID productId;
+
+    // 只有圖片事件時提供
+    private UUID imageId;
+
+    private LocalDateTime changedAt;
+
+    // 建立或更新時若已有完整產品資料則一併提供
+    private ProductResponse product;
+}
@@ -7,19 +7,25 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_product_id", columnList = "product_id"),
+        @Index(name = "idx_images_status_date_created", columnList = "status, date_created")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Image {
 
+    public enum Status { PENDING, READY }
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "image_id")
@@ -41,4 +47,15 @@ public class Image {
     @NotBlank
     @Column(name = "s3_bucket_path", nullable = false)
     private String s3BucketPath;
+
+    // 預簽名上傳建立時為 PENDING，確認 S3 已收到檔案後才變成 READY；只有 READY 的圖片對外可見
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'READY'")
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.READY;
+
+    // 已產生的縮圖寬度（px，由小到大，逗號分隔），S3 key 由原圖 key 推得；null 表示尚未處理，空字串表示原圖太小不需要縮圖
+    @Column(name = "renditions", length = 64)
+    private String renditions;
 }
@@ -15,15 +15,22 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_date_added_id", columnList = "date_added, id"),
+        @Index(name = "idx_products_owner_date_added_id", columnList = "owner_user_id, date_added, id"),
+        @Index(name = "idx_products_manufacturer_date_added_id", columnList = "manufacturer, date_added, id"),
+        @Index(name = "idx_products_quantity_date_added_id", columnList = "quantity, date_added, id"),
+        @Index(name = "idx_products_date_last_updated_id", columnList = "date_last_updated, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
+    // UUID 由應用程式產生，INSERT 前即有 id，才能使用 JDBC batch insert
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
     @NotBlank(message = "Product name is required")
@@ -0,0 +1,34 @@
+package com.chs.productservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Tombstone of a deleted product, reported as a DELETE by GET /v1/product/changes
+ */
+@Entity
+@Table(name = "product_deletions", indexes = {
+        @Index(name = "idx_product_deletions_date_deleted_product_id", columnList = "date_deleted, product_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeletion {
+
+    // 產品 id 不會重複使用，直接作為主鍵
+    @Id
+    @Column(name = "product_id")
+    private UUID productId;
+
+    @CreationTimestamp
+    @Column(name = "date_deleted", nullable = false, updatable = false)
+    private LocalDateTime dateDeleted;
+}
@@ -0,0 +1,53 @@
+package com.chs.productservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Outbox row for an S3 object to delete, written in the same transaction as the image rows it belonged to
+ * Drained by StorageCleanupService; a row only disappears once S3 confirmed the delete
+ */
+@Entity
+@Table(name = "storage_cleanup_outbox", indexes = {
+        @Index(name = "idx_storage_cleanup_outbox_next_attempt_at", columnList = "next_attempt_at"),
+        @Index(name = "idx_storage_cleanup_outbox_date_created", columnList = "date_created")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageCleanupTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "s3_key", nullable = false, length = 1024)
+    private String s3Key;
+
+    @CreationTimestamp
+    @Column(name = "date_created", nullable = false, updatable = false)
+    private LocalDateTime dateCreated;
+
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // 已被某個 worker 領取，到期前其他 worker 不會處理
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
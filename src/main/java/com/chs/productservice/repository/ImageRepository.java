@@ -2,14 +2,118 @@ package com.chs.productservice.repository;
 
 import com.chs.productservice.entity.Image;
 import com.chs.productservice.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image, UUID> {
-    List<Image> findByProduct(Product product);
-    void deleteByProduct(Product product);
+
+    /**
+     * Ready images of a product; uploads still pending are not visible
+     */
+    @Query("SELECT i FROM Image i WHERE i.product = :product AND i.status = READY")
+    List<Image> findReadyByProduct(@Param("product") Product product);
+
+    /**
+     * S3 keys and rendition widths of all images, pending ones included. Projection only: loading Image entities here would leave managed rows
+     * behind the bulk DELETE below, and flushing them would then fail once their product is removed in the same transaction
+     */
+    @Query("SELECT i.s3BucketPath AS s3BucketPath, i.renditions AS renditions FROM Image i WHERE i.product.id = :productId")
+    List<ImageStorageKeys> findStorageKeysByProductId(@Param("productId") UUID productId);
+
+    /**
+     * One DELETE for all images of a product, instead of loading and deleting them one by one
+     */
+    @Modifying
+    @Query("DELETE FROM Image i WHERE i.product.id = :productId")
+    int deleteAllByProductId(@Param("productId") UUID productId);
+
+    /**
+     * Image with its product and owner already loaded, so the ownership check never triggers a lazy load
+     */
+    @Query("SELECT i FROM Image i JOIN FETCH i.product p JOIN FETCH p.owner WHERE i.imageId = :imageId")
+    Optional<Image> findWithProductAndOwnerById(@Param("imageId") UUID imageId);
+
+    /**
+     * Ready images of a whole page of products in one query, for ?include=images
+     */
+    @Query("SELECT i FROM Image i WHERE i.product.id IN :productIds AND i.status = READY ORDER BY i.dateCreated, i.imageId")
+    List<Image> findReadyByProductIdIn(@Param("productIds") Collection<UUID> productIds);
+
+    @Query("SELECT i.dateCreated AS dateCreated, i.renditions AS renditions FROM Image i " +
+            "WHERE i.imageId = :imageId AND i.product.id = :productId AND i.status = READY")
+    Optional<ImageVersion> findVersionByImageIdAndProductId(@Param("imageId") UUID imageId,
+                                                            @Param("productId") UUID productId);
+
+    /**
+     * Count, newest creation time and number of images with renditions, used as the list version
+     */
+    @Query("SELECT COUNT(i) AS count, MAX(i.dateCreated) AS maxDateCreated, COUNT(i.renditions) AS renditionsReady FROM Image i " +
+            "WHERE i.product.id = :productId AND i.status = READY")
+    ImageListVersion findImageListVersion(@Param("productId") UUID productId);
+
+    /**
+     * Completes a presigned upload; 0 when the image is already ready or no longer exists
+     */
+    @Modifying
+    @Query("UPDATE Image i SET i.status = READY WHERE i.imageId = :imageId AND i.status = PENDING")
+    int markReady(@Param("imageId") UUID imageId);
+
+    /**
+     * Pending uploads never completed, oldest first, row-locked so concurrent sweepers and completions serialize
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Image i WHERE i.status = PENDING AND i.dateCreated < :cutoff ORDER BY i.dateCreated LIMIT :limit")
+    List<Image> findPendingCreatedBeforeForUpdate(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * Records the renditions produced in the background; 0 when the image was deleted meanwhile
+     */
+    @Modifying
+    @Query("UPDATE Image i SET i.renditions = :renditions WHERE i.imageId = :imageId")
+    int updateRenditions(@Param("imageId") UUID imageId, @Param("renditions") String renditions);
+
+    /**
+     * Ready images never processed by the rendition pipeline, in id order for keyset paging
+     */
+    @Query("SELECT i.imageId AS imageId, i.product.id AS productId, i.s3BucketPath AS s3BucketPath FROM Image i " +
+            "WHERE i.status = READY AND i.renditions IS NULL ORDER BY i.imageId LIMIT :limit")
+    List<RenditionSource> findWithoutRenditions(@Param("limit") int limit);
+
+    @Query("SELECT i.imageId AS imageId, i.product.id AS productId, i.s3BucketPath AS s3BucketPath FROM Image i " +
+            "WHERE i.status = READY AND i.renditions IS NULL AND i.imageId > :after ORDER BY i.imageId LIMIT :limit")
+    List<RenditionSource> findWithoutRenditionsAfter(@Param("after") UUID after, @Param("limit") int limit);
+
+    interface ImageListVersion {
+        long getCount();
+        LocalDateTime getMaxDateCreated();
+        long getRenditionsReady();
+    }
+
+    interface ImageVersion {
+        LocalDateTime getDateCreated();
+        String getRenditions();
+    }
+
+    interface ImageStorageKeys {
+        String getS3BucketPath();
+        String getRenditions();
+    }
+
+    interface RenditionSource {
+        UUID getImageId();
+        UUID getProductId();
+        String getS3BucketPath();
+    }
 }
@@ -0,0 +1,25 @@
+package com.chs.productservice.repository;
+
+import com.chs.productservice.entity.ProductDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProductDeletionRepository extends JpaRepository<ProductDeletion, UUID> {
+
+    /**
+     * Tombstones strictly after (dateDeleted, productId) and not after the settle point, oldest first
+     * The [since, until] range is the index range; the OR only drops the rows already returned at since
+     */
+    @Query("SELECT d FROM ProductDeletion d " +
+            "WHERE d.dateDeleted >= :since AND d.dateDeleted <= :until " +
+            "AND (d.dateDeleted > :since OR (d.dateDeleted = :since AND d.productId > :sinceId)) " +
+            "ORDER BY d.dateDeleted, d.productId " +
+            "LIMIT :limit")
+    List<ProductDeletion> findDeletedAfter(@Param("since") LocalDateTime since, @Param("sinceId") UUID sinceId,
+                                           @Param("until") LocalDateTime until, @Param("limit") int limit);
+}
@@ -1,15 +1,119 @@
 package com.chs.productservice.repository;
 
 import com.chs.productservice.entity.Product;
-import com.chs.productservice.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, UUID> {
-    List<Product> findByOwner(User owner);
-    Optional<Product> findByIdAndOwner(UUID id, User owner);
-    boolean existsBySku(String sku);
+public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpecificationExecutor<Product> {
+    /**
+     * Ownership check in the same query as the read, joined on users.email of the authenticated principal
+     */
+    Optional<Product> findByIdAndOwnerEmail(UUID id, String email);
+
+    /**
+     * Product with its owner already loaded, so comparing the owner never triggers a lazy load
+     */
+    @Query("SELECT p FROM Product p JOIN FETCH p.owner WHERE p.id = :id")
+    Optional<Product> findWithOwnerById(@Param("id") UUID id);
+
+    /**
+     * Existing SKUs among the given ones, a single IN query for batch creation
+     */
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN :skus")
+    Set<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
+    /**
+     * Only the version column, used to answer If-None-Match without loading the entity
+     */
+    @Query("SELECT p.dateLastUpdated FROM Product p WHERE p.id = :id")
+    Optional<LocalDateTime> findDateLastUpdatedById(@Param("id") UUID id);
+
+    /**
+     * Atomic stock change, the database applies the delta to the current value under the row lock
+     * Returns 0 when the product does not exist, belongs to someone else, or the result would go below zero or past the int column;
+     * the range check is done in bigint so it cannot overflow itself
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :delta, p.dateLastUpdated = :now " +
+            "WHERE p.id = :id AND p.owner.id = (SELECT u.id FROM User u WHERE u.email = :email) " +
+            "AND CAST(p.quantity AS Long) + :delta BETWEEN 0 AND 2147483647")
+    int adjustQuantity(@Param("id") UUID id, @Param("email") String email,
+                       @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    /**
+     * Locks every product referenced by an inventory adjustment with one query
+     * Rows are locked in id order, so concurrent adjustments touching the same products cannot deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids OR p.sku IN :skus ORDER BY p.id")
+    List<Product> findAllForUpdate(@Param("ids") Collection<UUID> ids, @Param("skus") Collection<String> skus);
+
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") UUID id);
+
+    @Query("SELECT p.owner.email FROM Product p WHERE p.id = :id")
+    Optional<String> findOwnerEmailById(@Param("id") UUID id);
+
+    /**
+     * Products created or updated strictly after (dateLastUpdated, id) and not after the settle point, oldest first
+     * The [since, until] range is the index range; the OR only drops the rows already returned at since
+     */
+    @Query("SELECT p FROM Product p " +
+            "WHERE p.dateLastUpdated >= :since AND p.dateLastUpdated <= :until " +
+            "AND (p.dateLastUpdated > :since OR (p.dateLastUpdated = :since AND p.id > :sinceId)) " +
+            "ORDER BY p.dateLastUpdated, p.id " +
+            "LIMIT :limit")
+    List<Product> findChangedAfter(@Param("since") LocalDateTime since, @Param("sinceId") UUID sinceId,
+                                   @Param("until") LocalDateTime until, @Param("limit") int limit);
+
+    /**
+     * Forward-only cursor over the whole catalogue for the NDJSON export
+     * Rows are fetched from the database in chunks of the fetch size instead of being loaded at once
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.dateAdded, p.id")
+    Stream<Product> streamAllOrderByDateAdded();
+
+    /**
+     * Ranked full-text search (PostgreSQL only, see schema-postgresql.sql)
+     * Matches the GIN-indexed search_vector or a trigram-indexed partial SKU, best matches first
+     */
+    @Query(value = "SELECT p.* FROM products p " +
+            "WHERE p.search_vector @@ websearch_to_tsquery('english', :query) " +
+            "OR p.sku ILIKE :skuPattern " +
+            "ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('english', :query)) " +
+            "+ CASE WHEN p.sku ILIKE :skuPattern THEN 1 ELSE 0 END DESC, p.id " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Product> searchFullText(@Param("query") String query, @Param("skuPattern") String skuPattern,
+                                 @Param("limit") int limit, @Param("offset") int offset);
+
+    /**
+     * Portable fallback when full-text search is disabled (e.g. H2 in tests)
+     */
+    @Query("SELECT p FROM Product p " +
+            "WHERE LOWER(p.name) LIKE :pattern OR LOWER(p.description) LIKE :pattern " +
+            "OR LOWER(p.manufacturer) LIKE :pattern OR LOWER(p.sku) LIKE :pattern " +
+            "ORDER BY p.dateAdded, p.id " +
+            "LIMIT :limit OFFSET :offset")
+    List<Product> searchByPattern(@Param("pattern") String pattern, @Param("limit") int limit, @Param("offset") int offset);
 }
@@ -0,0 +1,103 @@
+package com.chs.productservice.repository;
+
+import com.chs.productservice.dto.ProductFilterRequest;
+import com.chs.productservice.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Filter predicates for product listing
+ * Every equality filter is the leading column of a (column, date_added, id) index on products,
+ * so each combination stays a single index-served query ordered by date_added
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> matching(ProductFilterRequest filter) {
+        List<Specification<Product>> specs = new ArrayList<>();
+
+        if (filter.getManufacturer() != null && !filter.getManufacturer().isBlank()) {
+            specs.add(hasManufacturer(filter.getManufacturer().trim()));
+        }
+        if (filter.getOwnerId() != null) {
+            specs.add(hasOwner(filter.getOwnerId()));
+        }
+        if (filter.getQuantity() != null) {
+            specs.add(quantityBetween(filter.getQuantity(), filter.getQuantity()));
+        } else if (filter.getMinQuantity() != null || filter.getMaxQuantity() != null) {
+            specs.add(quantityBetween(filter.getMinQuantity(), filter.getMaxQuantity()));
+        }
+        if (filter.getAddedAfter() != null || filter.getAddedBefore() != null) {
+            specs.add(addedBetween(filter.getAddedAfter(), filter.getAddedBefore()));
+        }
+
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<Product> hasManufacturer(String manufacturer) {
+        return (root, query, cb) -> cb.equal(root.get("manufacturer"), manufacturer);
+    }
+
+    public static Specification<Product> hasOwner(UUID ownerId) {
+        return (root, query, cb) -> cb.equal(root.get("owner").get("id"), ownerId);
+    }
+
+    /**
+     * Owner by the authenticated principal's email, joined in the same query instead of looking the user up first
+     */
+    public static Specification<Product> hasOwnerEmail(String email) {
+        return (root, query, cb) -> cb.equal(root.join("owner").get("email"), email);
+    }
+
+    public static Specification<Product> quantityBetween(Integer min, Integer max) {
+        return (root, query, cb) -> {
+            if (min != null && min.equals(max)) {
+                return cb.equal(root.<Integer>get("quantity"), min);
+            }
+            if (min != null && max != null) {
+                return cb.between(root.<Integer>get("quantity"), min, max);
+            }
+            return min != null
+                    ? cb.greaterThanOrEqualTo(root.<Integer>get("quantity"), min)
+                    : cb.lessThanOrEqualTo(root.<Integer>get("quantity"), max);
+        };
+    }
+
+    public static Specification<Product> addedBetween(LocalDateTime after, LocalDateTime before) {
+        return (root, query, cb) -> {
+            if (after != null && before != null) {
+                return cb.and(
+                        cb.greaterThan(root.<LocalDateTime>get("dateAdded"), after),
+                        cb.lessThan(root.<LocalDateTime>get("dateAdded"), before));
+            }
+            return after != null
+                    ? cb.greaterThan(root.<LocalDateTime>get("dateAdded"), after)
+                    : cb.lessThan(root.<LocalDateTime>get("dateAdded"), before);
+        };
+    }
+
+    /**
+     * Keyset condition: rows strictly after (dateAdded, id) in the requested direction
+     * The redundant dateAdded >= / <= bound is what the index range can start from; the OR alone only filters,
+     * so without it every page would walk the index from the first entry
+     */
+    public static Specification<Product> after(LocalDateTime dateAdded, UUID id, boolean descending) {
+        return (root, query, cb) -> descending
+                ? cb.and(
+                        cb.lessThanOrEqualTo(root.<LocalDateTime>get("dateAdded"), dateAdded),
+                        cb.or(
+                                cb.lessThan(root.<LocalDateTime>get("dateAdded"), dateAdded),
+                                cb.and(cb.equal(root.<LocalDateTime>get("dateAdded"), dateAdded), cb.lessThan(root.<UUID>get("id"), id))))
+                : cb.and(
+                        cb.greaterThanOrEqualTo(root.<LocalDateTime>get("dateAdded"), dateAdded),
+                        cb.or(
+                                cb.greaterThan(root.<LocalDateTime>get("dateAdded"), dateAdded),
+                                cb.and(cb.equal(root.<LocalDateTime>get("dateAdded"), dateAdded), cb.greaterThan(root.<UUID>get("id"), id))));
+    }
+}
@@ -0,0 +1,29 @@
+package com.chs.productservice.repository;
+
+import com.chs.productservice.entity.StorageCleanupTask;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface StorageCleanupTaskRepository extends JpaRepository<StorageCleanupTask, UUID> {
+
+    /**
+     * Due tasks not leased by another worker, oldest first, row-locked until the caller's transaction ends
+     * A concurrent worker waits for the lock and then skips the rows, since their lease is already set
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM StorageCleanupTask t " +
+            "WHERE t.nextAttemptAt <= :now AND (t.lockedUntil IS NULL OR t.lockedUntil < :now) " +
+            "ORDER BY t.nextAttemptAt, t.id " +
+            "LIMIT :limit")
+    List<StorageCleanupTask> findDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query("SELECT MIN(t.dateCreated) FROM StorageCleanupTask t")
+    LocalDateTime findOldestDateCreated();
+}
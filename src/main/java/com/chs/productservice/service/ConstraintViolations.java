@@ -0,0 +1,32 @@
+package com.chs.productservice.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Maps database constraint violations back to business errors
+ * Lets writes rely on the unique constraint instead of a separate exists query before each INSERT/UPDATE
+ */
+final class ConstraintViolations {
+
+    // SQLState 23505 = unique_violation（PostgreSQL 與 H2 相同）
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private ConstraintViolations() {
+    }
+
+    static boolean isUniqueViolation(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException
+                    && UNIQUE_VIOLATION_SQL_STATE.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
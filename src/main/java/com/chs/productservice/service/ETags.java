@@ -0,0 +1,126 @@
+package com.chs.productservice.service;
+
+import com.chs.productservice.dto.ImageResponse;
+import com.chs.productservice.dto.ProductPageResponse;
+import com.chs.productservice.dto.ProductResponse;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Strong ETag values for product and image reads
+ * Built only from id and timestamp columns so they can be computed without loading or serializing the body
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String forProduct(UUID productId, LocalDateTime dateLastUpdated) {
+        return quote(productId + "-" + toMicrosHex(dateLastUpdated));
+    }
+
+    /**
+     * 附帶圖片時，圖片清單的版本也要納入，否則新增圖片後仍會回傳 304
+     */
+    public static String forProduct(ProductResponse product) {
+        String eTag = forProduct(product.getId(), product.getDateLastUpdated());
+        return product.getImages() == null ? eTag : hash(eTag + "|" + forImageList(product.getImages()));
+    }
+
+    /**
+     * 清單以筆數、最大 last-updated 與下一頁 cursor 的雜湊作為版本
+     */
+    public static String forProductPage(ProductPageResponse page) {
+        LocalDateTime maxLastUpdated = page.getProducts().stream()
+                .map(ProductResponse::getDateLastUpdated)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+
+        String version = page.getProducts().size() + "|" + toMicrosHex(maxLastUpdated) + "|" + page.getNextCursor();
+        if (page.getProducts().stream().anyMatch(product -> product.getImages() != null)) {
+            version += "|" + page.getProducts().stream()
+                    .map(product -> product.getImages() == null ? "-" : forImageList(product.getImages()))
+                    .collect(Collectors.joining(","));
+        }
+        return hash(version);
+    }
+
+    /**
+     * 圖片回應帶有預簽名 URL，URL 的失效時間也是版本的一部分：重新簽章後不會再回傳 304 讓用戶端沿用舊 URL
+     * 縮圖在背景補上，已產生的寬度（尚未處理為 null）同樣納入
+     */
+    public static String forImage(UUID imageId, LocalDateTime dateCreated, String renditions, LocalDateTime downloadUrlExpiresAt) {
+        return quote(imageId + "-" + toMicrosHex(dateCreated) + "-" + toMicrosHex(downloadUrlExpiresAt)
+                + "-" + (renditions == null ? "p" : "r" + renditions));
+    }
+
+    public static String forImage(ImageResponse image) {
+        String renditions = image.getRenditions() == null ? null : image.getRenditions().stream()
+                .map(rendition -> String.valueOf(rendition.getWidth()))
+                .collect(Collectors.joining(","));
+        return forImage(image.getImageId(), image.getDateCreated(), renditions, image.getDownloadUrlExpiresAt());
+    }
+
+    /**
+     * 縮圖只會從無到有，已有縮圖的筆數足以反映清單中縮圖的變化
+     */
+    public static String forImageList(long count, LocalDateTime maxDateCreated, long renditionsReady,
+                                      LocalDateTime downloadUrlExpiresAt) {
+        return hash(count + "|" + toMicrosHex(maxDateCreated) + "|" + renditionsReady + "|" + toMicrosHex(downloadUrlExpiresAt));
+    }
+
+    public static String forImageList(Collection<ImageResponse> images) {
+        LocalDateTime maxDateCreated = images.stream()
+                .map(ImageResponse::getDateCreated)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        LocalDateTime downloadUrlExpiresAt = images.stream()
+                .map(ImageResponse::getDownloadUrlExpiresAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+
+        long renditionsReady = images.stream().filter(image -> image.getRenditions() != null).count();
+
+        return forImageList(images.size(), maxDateCreated, renditionsReady, downloadUrlExpiresAt);
+    }
+
+    /**
+     * 同一資源的 JSON、CBOR 與 Smile 表示內容不同，強 ETag 也必須不同；JSON 維持原值，其他格式加上 subtype
+     */
+    public static String forRepresentation(String eTag, MediaType mediaType) {
+        if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)) {
+            return eTag;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + mediaType.getSubtype() + "\"";
+    }
+
+    // 截到微秒，與 PostgreSQL timestamp 精度一致
+    private static String toMicrosHex(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return "0";
+        }
+        long micros = ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), dateTime);
+        return Long.toHexString(micros);
+    }
+
+    private static String hash(String value) {
+        return quote(DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
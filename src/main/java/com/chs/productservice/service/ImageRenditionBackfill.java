@@ -0,0 +1,40 @@
+package com.chs.productservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-run tool for images uploaded before renditions existed (or rejected while the queue was full)
+ * Start a single instance with product.image.renditions.backfill=true; it queues every ready image without
+ * renditions in the background once the application is up, and can be restarted at any time
+ */
+@Component
+@ConditionalOnProperty(name = "product.image.renditions.backfill", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ImageRenditionBackfill implements ApplicationRunner {
+
+    private final ImageRenditionService imageRenditionService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // 不延遲啟動：佇列滿時 backfill 會等待
+        Thread thread = new Thread(() -> {
+            try {
+                log.info("Starting rendition backfill");
+                imageRenditionService.backfill();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Rendition backfill interrupted");
+            } catch (Exception e) {
+                log.error("Rendition backfill failed", e);
+            }
+        }, "image-rendition-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
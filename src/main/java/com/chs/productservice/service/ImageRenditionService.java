@@ -0,0 +1,366 @@
+package com.chs.productservice.service;
+
+import com.chs.productservice.dto.ProductStreamEvent;
+import com.chs.productservice.repository.ImageRepository;
+import com.timgroup.statsd.StatsDClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background pipeline that resizes uploaded images to fixed widths (product.image.renditions.widths)
+ * Each image goes download -> decode -> resize -> encode -> upload -> save on a dedicated pool, so CPU-heavy resizing
+ * never runs on request, storage or event-loop threads. At most threads + queue-capacity images are queued or in
+ * progress: uploads arriving when the queue is full are not queued (image.rendition.rejected) and stay without
+ * renditions until the next backfill, which waits for room instead of dropping work.
+ * Renditions are stored next to the original as {originalKey}_{width}w; the widths produced are saved on the image.
+ */
+@Service
+@Slf4j
+public class ImageRenditionService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final S3Service s3Service;
+    private final ImageRepository imageRepository;
+    private final StorageCleanupService storageCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsDClient statsDClient;
+    private final boolean enabled;
+    private final int[] widths;
+    private final Duration timeout;
+    private final long maxPixels;
+
+    private final ThreadPoolExecutor executor;
+    // 佇列中與處理中的圖片數上限
+    private final Semaphore slots;
+
+    public ImageRenditionService(S3Service s3Service,
+                                 ImageRepository imageRepository,
+                                 StorageCleanupService storageCleanupService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 TransactionTemplate transactionTemplate,
+                                 StatsDClient statsDClient,
+                                 @Value("${product.image.renditions.enabled}") boolean enabled,
+                                 @Value("${product.image.renditions.widths}") int[] widths,
+                                 @Value("${product.image.renditions.threads}") int threads,
+                                 @Value("${product.image.renditions.queue-capacity}") int queueCapacity,
+                                 @Value("${product.image.renditions.timeout}") Duration timeout,
+                                 @Value("${product.image.renditions.max-pixels}") long maxPixels) {
+        this.s3Service = s3Service;
+        this.imageRepository = imageRepository;
+        this.storageCleanupService = storageCleanupService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.statsDClient = statsDClient;
+        this.enabled = enabled;
+        this.widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        this.timeout = timeout;
+        this.maxPixels = maxPixels;
+
+        // 縮圖是 CPU 工作，使用固定數量的平台執行緒；佇列長度由 slots 限制
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.slots = new Semaphore(threads + queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 縮圖的 S3 key：與原圖放在同一個前綴下
+     */
+    public static String renditionKey(String s3Key, int width) {
+        return s3Key + "_" + width + "w";
+    }
+
+    public static List<Integer> parseWidths(String renditions) {
+        if (renditions == null || renditions.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(renditions.split(",")).map(Integer::valueOf).toList();
+    }
+
+    /**
+     * 圖片在 S3 上的所有物件：原圖與已產生的縮圖
+     */
+    public static List<String> storageKeys(String s3Key, String renditions) {
+        return Stream.concat(Stream.of(s3Key), parseWidths(renditions).stream().map(width -> renditionKey(s3Key, width)))
+                .toList();
+    }
+
+    /**
+     * 上傳完成後呼叫，不會阻塞：佇列已滿時不排入並回傳 false，圖片留給 backfill 處理
+     */
+    public boolean submit(UUID imageId, UUID productId, String s3Key) {
+        if (!isActive()) {
+            return false;
+        }
+        if (!slots.tryAcquire()) {
+            statsDClient.incrementCounter("image.rendition.rejected");
+            log.warn("Rendition queue full, leaving image {} for the backfill", imageId);
+            return false;
+        }
+        return execute(imageId, productId, s3Key);
+    }
+
+    /**
+     * Backfill：依 id 順序排入所有尚未產生縮圖的圖片，佇列已滿時等待，回傳排入的數量
+     * 只處理 renditions 為 null 的圖片，中斷後重新執行會從尚未處理的圖片繼續
+     */
+    public int backfill() throws InterruptedException {
+        if (!isActive()) {
+            log.warn("Rendition pipeline disabled or S3 not configured, skipping backfill");
+            return 0;
+        }
+
+        int submitted = 0;
+        List<ImageRepository.RenditionSource> batch = imageRepository.findWithoutRenditions(BACKFILL_BATCH_SIZE);
+        while (!batch.isEmpty()) {
+            for (ImageRepository.RenditionSource source : batch) {
+                slots.acquire();
+                if (execute(source.getImageId(), source.getProductId(), source.getS3BucketPath())) {
+                    submitted++;
+                }
+            }
+            if (batch.size() < BACKFILL_BATCH_SIZE) {
+                break;
+            }
+            batch = imageRepository.findWithoutRenditionsAfter(batch.get(batch.size() - 1).getImageId(), BACKFILL_BATCH_SIZE);
+        }
+
+        statsDClient.count("image.rendition.backfilled", submitted);
+        log.info("Rendition backfill queued {} images", submitted);
+        return submitted;
+    }
+
+    private boolean isActive() {
+        return enabled && widths.length > 0 && s3Service.isConfigured();
+    }
+
+    // 呼叫前已取得 slot，處理完成（或無法排入）時釋放
+    private boolean execute(UUID imageId, UUID productId, String s3Key) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    process(imageId, productId, s3Key, enqueuedAt);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 關機中
+            slots.release();
+            log.warn("Rendition pipeline shut down, leaving image {} for the backfill", imageId);
+            return false;
+        }
+        statsDClient.recordGaugeValue("image.rendition.queue.depth", executor.getQueue().size());
+        return true;
+    }
+
+    private void process(UUID imageId, UUID productId, String s3Key, long enqueuedAt) {
+        long startTime = System.nanoTime();
+        recordStage("queue", enqueuedAt);
+        try {
+            // 1. 下載原圖（大小已受上傳限制）
+            long stageStart = System.nanoTime();
+            ResponseBytes<GetObjectResponse> original = s3Service.downloadFileAsync(s3Key)
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            recordStage("download", stageStart);
+
+            // 2. 解碼；無法解碼或像素過多的圖片記為不需要縮圖，backfill 不會再重試
+            stageStart = System.nanoTime();
+            BufferedImage source = decode(original.asByteArray());
+            recordStage("decode", stageStart);
+            if (source == null) {
+                statsDClient.incrementCounter("image.rendition.skipped");
+                log.warn("Image {} cannot be decoded or is too large, no renditions produced: {}", imageId, s3Key);
+                saveRenditions(imageId, productId, s3Key, List.of());
+                return;
+            }
+
+            // 3. 縮小與編碼；PNG 保留透明度，其他一律輸出 JPEG；不放大比原圖寬的尺寸
+            boolean png = "image/png".equalsIgnoreCase(original.response().contentType());
+            Map<Integer, byte[]> renditions = new LinkedHashMap<>();
+            long resizeNanos = 0;
+            long encodeNanos = 0;
+            for (int width : widths) {
+                if (width >= source.getWidth()) {
+                    break;
+                }
+                stageStart = System.nanoTime();
+                BufferedImage resized = resize(source, width, png);
+                long encodeStart = System.nanoTime();
+                renditions.put(width, encode(resized, png ? "png" : "jpeg"));
+                resizeNanos += encodeStart - stageStart;
+                encodeNanos += System.nanoTime() - encodeStart;
+            }
+            statsDClient.recordExecutionTime("image.rendition.resize.time", resizeNanos / 1_000_000);
+            statsDClient.recordExecutionTime("image.rendition.encode.time", encodeNanos / 1_000_000);
+
+            // 4. 同時上傳所有縮圖；部分失敗時已上傳的交給 outbox 刪除，圖片留給 backfill 重試
+            stageStart = System.nanoTime();
+            String contentType = png ? "image/png" : "image/jpeg";
+            List<Integer> produced = List.copyOf(renditions.keySet());
+            try {
+                CompletableFuture.allOf(renditions.entrySet().stream()
+                                .map(entry -> s3Service.uploadBytesAsync(renditionKey(s3Key, entry.getKey()), entry.getValue(), contentType))
+                                .toArray(CompletableFuture[]::new))
+                        .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                cleanUp(s3Key, produced);
+                throw e;
+            }
+            recordStage("upload", stageStart);
+
+            // 5. 記錄已產生的尺寸
+            stageStart = System.nanoTime();
+            saveRenditions(imageId, productId, s3Key, produced);
+            recordStage("save", stageStart);
+
+            recordStage("total", startTime);
+            statsDClient.incrementCounter("image.rendition.success");
+            log.info("Renditions produced for image {}: {} - {}ms", imageId, produced, (System.nanoTime() - startTime) / 1_000_000);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Rendition of image {} interrupted", imageId);
+        } catch (Exception e) {
+            statsDClient.incrementCounter("image.rendition.error");
+            log.error("Failed to produce renditions for image {}: {}", imageId, s3Key, e);
+        }
+    }
+
+    private void saveRenditions(UUID imageId, UUID productId, String s3Key, List<Integer> produced) {
+        String renditions = produced.stream().map(String::valueOf).collect(Collectors.joining(","));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (imageRepository.updateRenditions(imageId, renditions) == 0) {
+                // 處理期間圖片已被刪除：剛上傳的縮圖不再被任何圖片引用
+                log.info("Image {} deleted while producing renditions, removing them", imageId);
+                enqueueCleanUp(s3Key, produced);
+                return;
+            }
+            eventPublisher.publishEvent(ProductStreamEvent.builder()
+                    .type(ProductStreamEvent.Type.IMAGE_UPDATED)
+                    .productId(productId)
+                    .imageId(imageId)
+                    .changedAt(LocalDateTime.now())
+                    .build());
+        });
+    }
+
+    private void cleanUp(String s3Key, List<Integer> produced) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> enqueueCleanUp(s3Key, produced));
+        } catch (Exception e) {
+            log.error("Failed to schedule removal of renditions of {}", s3Key, e);
+        }
+    }
+
+    private void enqueueCleanUp(String s3Key, List<Integer> produced) {
+        storageCleanupService.enqueue(produced.stream().map(width -> renditionKey(s3Key, width)).toList());
+    }
+
+    /**
+     * 先讀取尺寸再解碼，避免小檔案解壓成巨大點陣圖；無法解碼時回傳 null
+     */
+    private BufferedImage decode(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } catch (IOException e) {
+                log.warn("Failed to decode image: {}", e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 依比例縮小到指定寬度；每次最多縮小一半，避免單次大幅縮小的雙線性插值產生鋸齒
+     */
+    private static BufferedImage resize(BufferedImage source, int width, boolean alpha) {
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        do {
+            int nextWidth = Math.max(width, current.getWidth() / 2);
+            int nextHeight = Math.max(height, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, output)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return output.toByteArray();
+    }
+
+    private void recordStage(String stage, long startNanos) {
+        statsDClient.recordExecutionTime("image.rendition." + stage + ".time", (System.nanoTime() - startNanos) / 1_000_000);
+    }
+}
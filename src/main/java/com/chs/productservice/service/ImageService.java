@@ -1,21 +1,43 @@
 package com.chs.productservice.service;
 
+import com.chs.productservice.dto.ImageRenditionResponse;
 import com.chs.productservice.dto.ImageResponse;
+import com.chs.productservice.dto.ImageUploadUrlRequest;
+import com.chs.productservice.dto.ImageUploadUrlResponse;
+import com.chs.productservice.dto.ProductStreamEvent;
 import com.chs.productservice.entity.Image;
 import com.chs.productservice.entity.Product;
 import com.chs.productservice.entity.User;
 import com.chs.productservice.repository.ImageRepository;
 import com.chs.productservice.repository.ProductRepository;
-import com.chs.productservice.repository.UserRepository;
+import com.timgroup.statsd.StatsDClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,8 +47,25 @@ public class ImageService {
 
     private final ImageRepository imageRepository;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
     private final S3Service s3Service;
+    private final StorageCleanupService storageCleanupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService storageExecutor;
+    private final StatsDClient statsDClient;
+    private final ImageUrlCache imageUrlCache;
+    private final ImageRenditionService imageRenditionService;
+
+    @Value("${spring.servlet.multipart.max-file-size}")
+    private DataSize maxFileSize;
+
+    @Value("${product.image.upload-url.expiry}")
+    private Duration uploadUrlExpiry;
+
+    @Value("${product.image.upload-url.pending-ttl}")
+    private Duration pendingUploadTtl;
+
+    private static final int SWEEP_BATCH_SIZE = 500;
 
     // 支援的圖片格式
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
@@ -37,41 +76,194 @@ public class ImageService {
 
     /**
      * 上傳圖片到產品
+     * 驗證與擁有者檢查在呼叫端執行緒完成；S3 上傳期間不占用請求執行緒，也不持有資料庫連線
+     * 上傳完成後在 storage executor 上以新的交易寫入 metadata，並排入背景縮圖
      */
-    @Transactional
-    public ImageResponse uploadImage(UUID productId, MultipartFile file, String userEmail) {
+    public CompletableFuture<ImageResponse> uploadImage(UUID productId, MultipartFile file, String userEmail) {
         log.info("Uploading image for product: {}, by user: {}", productId, userEmail);
 
         // 1. 驗證檔案類型
         validateImageFile(file);
 
-        // 2. 驗證產品存在
-        Product product = productRepository.findById(productId)
+        // 2. 驗證產品存在，擁有者一併載入
+        Product product = productRepository.findWithOwnerById(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
 
         // 3. 驗證使用者是產品擁有者
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userEmail));
-
-        if (!product.getOwner().getId().equals(user.getId())) {
+        User owner = product.getOwner();
+        if (!owner.getEmail().equals(userEmail)) {
             throw new IllegalArgumentException("Access denied: You can only upload images to your own products");
         }
 
-        // 4. 上傳到 S3
-        String s3Key = s3Service.uploadFile(file, user.getId(), productId);
+        // 4. 上傳到 S3；完成後帶著目前的 SecurityContext 寫入（read replica 的 read-your-writes 依賴它）
+        String fileName = file.getOriginalFilename();
+        Executor executor = new DelegatingSecurityContextExecutor(storageExecutor, SecurityContextHolder.getContext());
+        return s3Service.uploadFileAsync(file, owner.getId(), productId)
+                .thenApplyAsync(s3Key -> saveUploadedImage(productId, fileName, s3Key), executor);
+    }
+
+    /**
+     * 5. 儲存 metadata 到資料庫；產品在上傳期間被刪除時移除已上傳的檔案
+     */
+    private ImageResponse saveUploadedImage(UUID productId, String fileName, String s3Key) {
+        try {
+            Image image = transactionTemplate.execute(status -> {
+                Image saved = imageRepository.save(Image.builder()
+                        .product(productRepository.getReferenceById(productId))
+                        .fileName(fileName)
+                        .s3BucketPath(s3Key)
+                        .build());
+                imageRepository.flush();
+                publishChange(ProductStreamEvent.Type.IMAGE_ADDED, productId, saved.getImageId());
+                return saved;
+            });
+
+            log.info("Image uploaded successfully: imageId={}, s3Key={}", image.getImageId(), s3Key);
+            imageRenditionService.submit(image.getImageId(), productId, s3Key);
+            return toResponse(image);
+
+        } catch (DataIntegrityViolationException e) {
+            storageCleanupService.enqueue(List.of(s3Key));
+            throw new IllegalArgumentException("Product not found with id: " + productId);
+        }
+    }
 
-        // 5. 儲存 metadata 到資料庫
-        Image image = Image.builder()
+    /**
+     * 預簽名上傳第一步：建立 PENDING 圖片並回傳直接上傳到 S3 的 PUT URL，檔案不經過本服務
+     * 未在 pending-ttl 內完成的上傳由 sweepPendingUploads 清除
+     */
+    @Transactional
+    public ImageUploadUrlResponse createUploadUrl(UUID productId, ImageUploadUrlRequest request, String userEmail) {
+        log.info("Creating upload URL for product: {}, by user: {}", productId, userEmail);
+
+        // 1. 驗證檔案類型與大小（大小簽入 URL，S3 只接受同樣大小的上傳）
+        validateContentType(request.getContentType());
+        if (request.getContentLength() > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("File size exceeds the limit of " + maxFileSize.toMegabytes() + "MB");
+        }
+
+        // 2. 驗證產品存在，擁有者一併載入
+        Product product = productRepository.findWithOwnerById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+
+        // 3. 驗證使用者是產品擁有者
+        User owner = product.getOwner();
+        if (!owner.getEmail().equals(userEmail)) {
+            throw new IllegalArgumentException("Access denied: You can only upload images to your own products");
+        }
+
+        // 4. 建立 PENDING 圖片並簽發 URL（本地簽章，不呼叫 S3）
+        String s3Key = s3Service.newObjectKey(owner.getId(), productId, request.getFileName());
+        Image image = imageRepository.save(Image.builder()
                 .product(product)
-                .fileName(file.getOriginalFilename())
+                .fileName(request.getFileName())
+                .s3BucketPath(s3Key)
+                .status(Image.Status.PENDING)
+                .build());
+        S3Service.PresignedUrl uploadUrl = s3Service.presignUpload(
+                s3Key, request.getContentType().toLowerCase(), request.getContentLength(), uploadUrlExpiry);
+
+        log.info("Upload URL created: imageId={}, s3Key={}", image.getImageId(), s3Key);
+        return ImageUploadUrlResponse.builder()
+                .imageId(image.getImageId())
+                .productId(productId)
+                .fileName(image.getFileName())
                 .s3BucketPath(s3Key)
+                .uploadUrl(uploadUrl.url())
+                .uploadHeaders(uploadUrl.headers())
+                .expiresAt(LocalDateTime.ofInstant(uploadUrl.expiration(), ZoneId.systemDefault()))
                 .build();
+    }
+
+    /**
+     * 預簽名上傳第二步：以 HEAD 確認 S3 已收到檔案後，將圖片標記為 READY
+     * HEAD 期間不占用請求執行緒也不持有資料庫連線；重複呼叫回傳同一張圖片
+     */
+    public CompletableFuture<ImageResponse> completeUpload(UUID productId, UUID imageId, String userEmail) {
+        log.info("Completing upload: imageId={}, productId={}, user={}", imageId, productId, userEmail);
+
+        // 1. 查找圖片，產品與擁有者一併載入
+        Image image = imageRepository.findWithProductAndOwnerById(imageId)
+                .orElseThrow(() -> new IllegalArgumentException("Image not found with id: " + imageId));
+
+        // 2. 驗證圖片屬於指定的產品
+        if (!image.getProduct().getId().equals(productId)) {
+            throw new IllegalArgumentException("Image does not belong to the specified product");
+        }
+
+        // 3. 驗證使用者是產品擁有者
+        if (!image.getProduct().getOwner().getEmail().equals(userEmail)) {
+            throw new IllegalArgumentException("Access denied: You can only upload images to your own products");
+        }
 
-        image = imageRepository.save(image);
+        if (image.getStatus() == Image.Status.READY) {
+            return CompletableFuture.completedFuture(toResponse(image));
+        }
 
-        log.info("Image uploaded successfully: imageId={}, s3Key={}", image.getImageId(), s3Key);
+        // 4. 確認檔案已上傳，再以新的交易標記為 READY
+        Executor executor = new DelegatingSecurityContextExecutor(storageExecutor, SecurityContextHolder.getContext());
+        return s3Service.fileExistsAsync(image.getS3BucketPath())
+                .thenApplyAsync(exists -> {
+                    if (!exists) {
+                        throw new IllegalArgumentException("Upload has not been received yet for image: " + imageId);
+                    }
+                    return markUploaded(productId, imageId);
+                }, executor);
+    }
 
-        return ImageResponse.from(image);
+    private ImageResponse markUploaded(UUID productId, UUID imageId) {
+        Image image = transactionTemplate.execute(status -> {
+            boolean completed = imageRepository.markReady(imageId) == 1;
+            // 同時被刪除或被清除時不存在
+            Image ready = imageRepository.findWithProductAndOwnerById(imageId)
+                    .orElseThrow(() -> new IllegalArgumentException("Image not found with id: " + imageId));
+            if (completed) {
+                publishChange(ProductStreamEvent.Type.IMAGE_ADDED, productId, imageId);
+                // 提交後才排入縮圖；重複呼叫時不再排入
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        imageRenditionService.submit(imageId, productId, ready.getS3BucketPath());
+                    }
+                });
+            }
+            return ready;
+        });
+
+        log.info("Upload completed: imageId={}, s3Key={}", imageId, image.getS3BucketPath());
+        return toResponse(image);
+    }
+
+    /**
+     * 清除逾時未完成的預簽名上傳；S3 上可能已有檔案，一併交由 storage cleanup outbox 刪除
+     */
+    @Scheduled(fixedDelayString = "${product.image.upload-url.sweep-interval}",
+            initialDelayString = "${product.image.upload-url.sweep-interval}")
+    public void sweepPendingUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingUploadTtl);
+        int total = 0;
+        try {
+            Integer swept;
+            do {
+                swept = transactionTemplate.execute(status -> {
+                    List<Image> expired = imageRepository.findPendingCreatedBeforeForUpdate(cutoff, SWEEP_BATCH_SIZE);
+                    if (expired.isEmpty()) {
+                        return 0;
+                    }
+                    imageRepository.deleteAllByIdInBatch(expired.stream().map(Image::getImageId).toList());
+                    storageCleanupService.enqueue(expired.stream().map(Image::getS3BucketPath).toList());
+                    return expired.size();
+                });
+                total += swept;
+            } while (swept == SWEEP_BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Failed to sweep pending uploads", e);
+        }
+
+        if (total > 0) {
+            statsDClient.count("image.upload.pending.swept", total);
+            log.info("Swept {} pending uploads created before {}", total, cutoff);
+        }
     }
 
     /**
@@ -85,13 +277,27 @@ public class ImageService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
 
-        List<Image> images = imageRepository.findByProduct(product);
+        List<Image> images = imageRepository.findReadyByProduct(product);
 
         return images.stream()
-                .map(ImageResponse::from)
+                .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 一次查詢取得多個產品的圖片，依產品 id 分組（沒有圖片的產品不會出現在結果中）
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<ImageResponse>> getImagesByProductIds(Collection<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return imageRepository.findReadyByProductIdIn(productIds).stream()
+                .map(this::toResponse)
+                .collect(Collectors.groupingBy(ImageResponse::getProductId));
+    }
+
     /**
      * 取得單一圖片資訊
      */
@@ -99,7 +305,9 @@ public class ImageService {
     public ImageResponse getImageById(UUID productId, UUID imageId) {
         log.info("Getting image: imageId={}, productId={}", imageId, productId);
 
+        // 尚未完成上傳的圖片不對外可見
         Image image = imageRepository.findById(imageId)
+                .filter(found -> found.getStatus() == Image.Status.READY)
                 .orElseThrow(() -> new IllegalArgumentException("Image not found with id: " + imageId));
 
         // 驗證圖片屬於指定的產品
@@ -107,7 +315,33 @@ public class ImageService {
             throw new IllegalArgumentException("Image does not belong to the specified product");
         }
 
-        return ImageResponse.from(image);
+        return toResponse(image);
+    }
+
+    /**
+     * 取得單一圖片的 ETag（圖片建立後只有縮圖會在背景補上），圖片不存在時回傳 null
+     */
+    @Transactional(readOnly = true)
+    public String getImageETag(UUID productId, UUID imageId) {
+        return imageRepository.findVersionByImageIdAndProductId(imageId, productId)
+                .map(version -> ETags.forImage(imageId, version.getDateCreated(), version.getRenditions(),
+                        currentDownloadUrlExpiry()))
+                .orElse(null);
+    }
+
+    /**
+     * 取得產品圖片清單的 ETag（筆數 + 最新建立時間 + 已有縮圖的筆數），沒有圖片時回傳 null
+     */
+    @Transactional(readOnly = true)
+    public String getProductImagesETag(UUID productId) {
+        ImageRepository.ImageListVersion version = imageRepository.findImageListVersion(productId);
+        if (version.getCount() == 0) {
+            // 無法區分「沒有圖片」與「產品不存在」，交由完整查詢處理
+            return null;
+        }
+
+        return ETags.forImageList(version.getCount(), version.getMaxDateCreated(), version.getRenditionsReady(),
+                currentDownloadUrlExpiry());
     }
 
     /**
@@ -117,8 +351,8 @@ public class ImageService {
     public void deleteImage(UUID productId, UUID imageId, String userEmail) {
         log.info("Deleting image: imageId={}, productId={}, user={}", imageId, productId, userEmail);
 
-        // 1. 查找圖片
-        Image image = imageRepository.findById(imageId)
+        // 1. 查找圖片，產品與擁有者一併載入
+        Image image = imageRepository.findWithProductAndOwnerById(imageId)
                 .orElseThrow(() -> new IllegalArgumentException("Image not found with id: " + imageId));
 
         // 2. 驗證圖片屬於指定的產品
@@ -127,52 +361,81 @@ public class ImageService {
         }
 
         // 3. 驗證使用者是產品擁有者
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userEmail));
-
-        if (!image.getProduct().getOwner().getId().equals(user.getId())) {
+        if (!image.getProduct().getOwner().getEmail().equals(userEmail)) {
             throw new IllegalArgumentException("Access denied: You can only delete images from your own products");
         }
 
-        // 4. 從 S3 刪除檔案
-        try {
-            s3Service.deleteFile(image.getS3BucketPath());
-        } catch (Exception e) {
-            log.error("Failed to delete file from S3: {}", image.getS3BucketPath(), e);
-            // 即使 S3 刪除失敗，仍然刪除資料庫記錄
-        }
-
-        // 5. 從資料庫刪除記錄
+        // 4. 從資料庫刪除記錄
         imageRepository.delete(image);
 
+        // 5. 同一交易寫入 storage cleanup outbox（原圖與縮圖），提交後由背景 worker 從 S3 刪除
+        List<String> s3Keys = ImageRenditionService.storageKeys(image.getS3BucketPath(), image.getRenditions());
+        storageCleanupService.enqueue(s3Keys);
+        s3Keys.forEach(imageUrlCache::evict);
+        publishChange(ProductStreamEvent.Type.IMAGE_REMOVED, productId, imageId);
+
         log.info("Image deleted successfully: imageId={}", imageId);
     }
 
     /**
-     * 刪除產品的所有圖片（當產品被刪除時呼叫）
+     * 刪除產品的所有圖片（當產品被刪除時呼叫，產品是否存在與擁有者已由呼叫端驗證）
      */
     @Transactional
     public void deleteProductImages(UUID productId) {
         log.info("Deleting all images for product: {}", productId);
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+        List<ImageRepository.ImageStorageKeys> images = imageRepository.findStorageKeysByProductId(productId);
 
-        List<Image> images = imageRepository.findByProduct(product);
+        // 刪除所有資料庫記錄
+        int deleted = imageRepository.deleteAllByProductId(productId);
 
-        // 刪除所有 S3 檔案
-        for (Image image : images) {
-            try {
-                s3Service.deleteFile(image.getS3BucketPath());
-            } catch (Exception e) {
-                log.error("Failed to delete file from S3: {}", image.getS3BucketPath(), e);
-            }
+        // S3 檔案（原圖與縮圖）由 storage cleanup outbox 批次刪除
+        List<String> s3Keys = images.stream()
+                .flatMap(image -> ImageRenditionService.storageKeys(image.getS3BucketPath(), image.getRenditions()).stream())
+                .toList();
+        storageCleanupService.enqueue(s3Keys);
+        s3Keys.forEach(imageUrlCache::evict);
+
+        log.info("Deleted {} images for product: {}", deleted, productId);
+    }
+
+    /**
+     * 附上預簽名下載 URL，同一個 key 在同一個時間窗內重複使用快取的 URL，不會每次重新簽章
+     */
+    private ImageResponse toResponse(Image image) {
+        ImageResponse response = ImageResponse.from(image);
+        S3Service.PresignedUrl downloadUrl = imageUrlCache.get(image.getS3BucketPath());
+        response.setDownloadUrl(downloadUrl.url());
+        response.setDownloadUrlExpiresAt(LocalDateTime.ofInstant(downloadUrl.expiration(), ZoneId.systemDefault()));
+        if (image.getRenditions() != null) {
+            response.setRenditions(ImageRenditionService.parseWidths(image.getRenditions()).stream()
+                    .map(width -> {
+                        String s3Key = ImageRenditionService.renditionKey(image.getS3BucketPath(), width);
+                        return ImageRenditionResponse.builder()
+                                .width(width)
+                                .s3BucketPath(s3Key)
+                                .downloadUrl(imageUrlCache.get(s3Key).url())
+                                .build();
+                    })
+                    .toList());
         }
+        return response;
+    }
 
-        // 刪除所有資料庫記錄
-        imageRepository.deleteByProduct(product);
+    private LocalDateTime currentDownloadUrlExpiry() {
+        return LocalDateTime.ofInstant(imageUrlCache.currentExpiry(), ZoneId.systemDefault());
+    }
 
-        log.info("Deleted {} images for product: {}", images.size(), productId);
+    /**
+     * 發布圖片變更事件，由 ProductEventStream 在交易提交後推送給 SSE 訂閱者
+     */
+    private void publishChange(ProductStreamEvent.Type type, UUID productId, UUID imageId) {
+        eventPublisher.publishEvent(ProductStreamEvent.builder()
+                .type(type)
+                .productId(productId)
+                .imageId(imageId)
+                .changedAt(LocalDateTime.now())
+                .build());
     }
 
     /**
@@ -185,14 +448,18 @@ public class ImageService {
 
         // 驗證檔案類型
         String contentType = file.getContentType();
+        validateContentType(contentType);
+
+        // 驗證檔案大小（Spring 已經在 application.properties 中設定了 5MB 限制）
+        log.debug("File validation passed: name={}, type={}, size={}",
+                    file.getOriginalFilename(), contentType, file.getSize());
+    }
+
+    private void validateContentType(String contentType) {
         if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType.toLowerCase())) {
             throw new IllegalArgumentException(
                     "Invalid file type. Only JPEG, JPG, and PNG files are allowed. Received: " + contentType
             );
         }
-
-        // 驗證檔案大小（Spring 已經在 application.properties 中設定了 5MB 限制）
-        log.debug("File validation passed: name={}, type={}, size={}",
-                    file.getOriginalFilename(), contentType, file.getSize());
     }
 }
@@ -0,0 +1,76 @@
+package com.chs.productservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.timgroup.statsd.StatsDClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Presigned GET URLs per S3 key, signed once per window and reused until the window ends
+ * Windows are aligned to the epoch and every URL signed in a window expires at window end + min-validity, so a URL
+ * handed out is always valid for at least min-validity, and all instances agree on the current expiry without
+ * loading any image: it is part of the image ETags, which therefore change exactly when the URLs are re-signed
+ */
+@Component
+public class ImageUrlCache {
+
+    private final Cache<String, S3Service.PresignedUrl> cache;
+    private final S3Service s3Service;
+    private final StatsDClient statsDClient;
+    private final long ttlMillis;
+    private final Duration minValidity;
+
+    public ImageUrlCache(@Value("${product.image.download-url.ttl}") Duration ttl,
+                         @Value("${product.image.download-url.min-validity}") Duration minValidity,
+                         @Value("${product.image.download-url.cache-max-size}") long maxSize,
+                         S3Service s3Service,
+                         StatsDClient statsDClient) {
+        this.ttlMillis = ttl.toMillis();
+        this.minValidity = minValidity;
+        this.s3Service = s3Service;
+        this.statsDClient = statsDClient;
+        // 過期的項目在下次取用時就會重簽，這裡只負責釋放記憶體
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * 目前時間窗內簽出的 URL 的失效時間
+     */
+    public Instant currentExpiry() {
+        long now = System.currentTimeMillis();
+        long windowStart = now - Math.floorMod(now, ttlMillis);
+        return Instant.ofEpochMilli(windowStart + ttlMillis).plus(minValidity);
+    }
+
+    /**
+     * 命中時只有一次 hash 查找；未命中或屬於前一個時間窗時重新簽章
+     */
+    public S3Service.PresignedUrl get(String s3Key) {
+        Instant expiresAt = currentExpiry();
+        S3Service.PresignedUrl cached = cache.getIfPresent(s3Key);
+        if (cached != null && cached.expiration().equals(expiresAt)) {
+            return cached;
+        }
+
+        long startTime = System.nanoTime();
+        S3Service.PresignedUrl signed = s3Service.presignDownload(s3Key, expiresAt);
+        cache.put(s3Key, signed);
+        statsDClient.incrementCounter("cache.imageurl.miss");
+        statsDClient.recordExecutionTime("s3.presign.download.time", (System.nanoTime() - startTime) / 1_000_000);
+        return signed;
+    }
+
+    /**
+     * 圖片刪除後不再需要
+     */
+    public void evict(String s3Key) {
+        cache.invalidate(s3Key);
+    }
+}
@@ -0,0 +1,80 @@
+package com.chs.productservice.service;
+
+import com.chs.productservice.dto.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.timgroup.statsd.StatsDClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of ProductResponse keyed by product id
+ * Each instance keeps its own copy, so the TTL bounds how long another instance's write can stay invisible
+ */
+@Component
+@Slf4j
+public class ProductCache {
+
+    private final Cache<UUID, ProductResponse> cache;
+    private final StatsDClient statsDClient;
+
+    public ProductCache(@Value("${product.cache.max-size}") long maxSize,
+                        @Value("${product.cache.ttl}") Duration ttl,
+                        StatsDClient statsDClient) {
+        this.statsDClient = statsDClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .removalListener((UUID productId, ProductResponse response, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        statsDClient.incrementCounter("cache.product.eviction");
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 命中時直接回傳，未命中時以 loader 載入並放入快取
+     * 載入與 evict 對同一個 key 互斥，避免把交易提交前讀到的舊資料放回快取
+     */
+    public ProductResponse get(UUID productId, Function<UUID, ProductResponse> loader) {
+        boolean[] loaded = {false};
+        ProductResponse response = cache.get(productId, id -> {
+            loaded[0] = true;
+            return loader.apply(id);
+        });
+
+        statsDClient.incrementCounter(loaded[0] ? "cache.product.miss" : "cache.product.hit");
+        return response;
+    }
+
+    public ProductResponse getIfPresent(UUID productId) {
+        return cache.getIfPresent(productId);
+    }
+
+    /**
+     * 在交易提交後移除快取，確保之後的讀取會看到新資料
+     */
+    public void evict(UUID productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(productId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(productId);
+                log.debug("Product cache evicted: {}", productId);
+            }
+        });
+    }
+}
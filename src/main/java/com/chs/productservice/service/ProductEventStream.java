@@ -0,0 +1,263 @@
+package com.chs.productservice.service;
+
+import com.chs.productservice.dto.ProductStreamEvent;
+import com.timgroup.statsd.StatsDClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans committed product and image changes out to SSE subscribers (GET /v1/product/stream)
+ * Idle connections hold no thread: each SseEmitter is an async request, and events are written by a small
+ * shared sender pool from a bounded per-subscriber queue. A subscriber whose queue overflows is sent a
+ * resync event with a GET /v1/product/changes cursor and disconnected, so it can catch up and reconnect.
+ */
+@Component
+@Slf4j
+public class ProductEventStream {
+
+    private static final String EVENT_CONNECTED = "connected";
+    private static final String EVENT_RESYNC = "resync";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender;
+    private final StatsDClient statsDClient;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration settleLag;
+
+    public ProductEventStream(@Value("${product.stream.buffer-size}") int bufferSize,
+                              @Value("${product.stream.max-subscribers}") int maxSubscribers,
+                              @Value("${product.stream.sender-threads}") int senderThreads,
+                              @Value("${product.stream.timeout}") Duration timeout,
+                              @Value("${product.changes.settle-lag}") Duration settleLag,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                              StatsDClient statsDClient) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.settleLag = settleLag;
+        this.statsDClient = statsDClient;
+
+        // 虛擬執行緒模式下仍保留固定數量的 sender，只是改用虛擬執行緒
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("product-stream-", 1).factory();
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "product-stream-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        this.sender = Executors.newFixedThreadPool(senderThreads, threadFactory);
+    }
+
+    /**
+     * 建立新的訂閱，超過上限時回傳 empty
+     * 第一個事件帶有目前的 resume cursor，斷線後可用 GET /v1/product/changes?since= 補齊
+     */
+    public Optional<SseEmitter> subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            statsDClient.incrementCounter("stream.subscriber.rejected");
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize), resumeCursor(LocalDateTime.now()));
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        subscribers.add(subscriber);
+        statsDClient.recordGaugeValue("stream.subscribers", subscribers.size());
+
+        offer(subscriber, new Item(SseEmitter.event()
+                .name(EVENT_CONNECTED)
+                .id(subscriber.lastCursor)
+                .data(Map.of("resumeCursor", subscriber.lastCursor), MediaType.APPLICATION_JSON), null, false));
+
+        return Optional.of(emitter);
+    }
+
+    /**
+     * 只在交易提交後才推送，rollback 的變更不會被送出
+     * 只把事件放入各訂閱者的佇列，不會在提交交易的執行緒上寫入網路
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onChange(ProductStreamEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String cursor = resumeCursor(event.getChangedAt());
+        for (Subscriber subscriber : subscribers) {
+            Item item = new Item(SseEmitter.event()
+                    .name(event.getType().name())
+                    .id(cursor)
+                    .data(event, MediaType.APPLICATION_JSON), cursor, false);
+
+            if (!offer(subscriber, item)) {
+                disconnectSlowConsumer(subscriber);
+            }
+        }
+        statsDClient.incrementCounter("stream.event.published");
+    }
+
+    /**
+     * 定期送出 SSE comment，讓 proxy / load balancer 不會因閒置而關閉連線
+     * 佇列已滿的訂閱者略過，由下一個事件判斷是否過慢
+     */
+    @Scheduled(fixedDelayString = "${product.stream.heartbeat-interval}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, new Item(SseEmitter.event().comment("keepalive"), null, false));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // 佇列已滿時回傳 false；已關閉的訂閱者直接略過
+    private boolean offer(Subscriber subscriber, Item item) {
+        if (subscriber.closed.get()) {
+            return true;
+        }
+        if (!subscriber.queue.offer(item)) {
+            return false;
+        }
+        scheduleDrain(subscriber);
+        return true;
+    }
+
+    /**
+     * 清空佇列，只留下 resync 事件，送出後關閉連線
+     * resume cursor 取自最後成功送出的事件，之後的變更可由 change feed 補回
+     */
+    private void disconnectSlowConsumer(Subscriber subscriber) {
+        // 與其他 producer 或 remove 競爭時只有一方能送出 resync
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        subscriber.queue.offer(new Item(SseEmitter.event()
+                .name(EVENT_RESYNC)
+                .id(subscriber.lastCursor)
+                .data(Map.of("resumeCursor", subscriber.lastCursor), MediaType.APPLICATION_JSON), null, true));
+        scheduleDrain(subscriber);
+
+        statsDClient.incrementCounter("stream.subscriber.slow");
+        statsDClient.recordGaugeValue("stream.subscribers", subscribers.size());
+        log.warn("SSE subscriber too slow, disconnecting with resume cursor {}", subscriber.lastCursor);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    // 每個訂閱者同時只有一個 drain 在執行，事件依佇列順序送出
+    private void drain(Subscriber subscriber) {
+        try {
+            Item item;
+            while ((item = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(item.event());
+                if (item.cursor() != null) {
+                    subscriber.lastCursor = item.cursor();
+                }
+                if (item.last()) {
+                    subscriber.emitter.complete();
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 用戶端已斷線或 emitter 已結束
+            log.debug("SSE subscriber gone: {}", e.getMessage());
+            remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // drain 結束與新事件入列之間的競爭：有剩餘事件時再排一次
+        if (!subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed.set(true);
+        if (subscribers.remove(subscriber)) {
+            statsDClient.recordGaugeValue("stream.subscribers", subscribers.size());
+        }
+    }
+
+    // 往前退 settle-lag，確保尚在提交中的交易不會被略過；重複的 UPSERT 由用戶端冪等處理
+    private String resumeCursor(LocalDateTime changedAt) {
+        return new ProductCursor(changedAt.minus(settleLag), new UUID(0, 0)).encode();
+    }
+
+    private record Item(SseEmitter.SseEventBuilder event, String cursor, boolean last) {
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Item> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile String lastCursor;
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<Item> queue, String lastCursor) {
+            this.emitter = emitter;
+            this.queue = queue;
+            this.lastCursor = lastCursor;
+        }
+    }
+}
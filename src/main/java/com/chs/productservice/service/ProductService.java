@@ -1,36 +1,109 @@
 package com.chs.productservice.service;
 
+import com.chs.productservice.config.ReadReplicaRouting;
+import com.chs.productservice.dto.ImageResponse;
+import com.chs.productservice.dto.InventoryAdjustmentRequest;
+import com.chs.productservice.dto.InventoryAdjustmentResponse;
+import com.chs.productservice.dto.InventoryAdjustmentResult;
+import com.chs.productservice.dto.ProductBatchItemResult;
+import com.chs.productservice.dto.ProductBatchResponse;
+import com.chs.productservice.dto.ProductChange;
+import com.chs.productservice.dto.ProductChangesResponse;
 import com.chs.productservice.dto.ProductCreateRequest;
+import com.chs.productservice.dto.ProductFilterRequest;
+import com.chs.productservice.dto.ProductPageResponse;
+import com.chs.productservice.dto.ProductQuantityResponse;
 import com.chs.productservice.dto.ProductResponse;
+import com.chs.productservice.dto.ProductStreamEvent;
 import com.chs.productservice.dto.ProductUpdateRequest;
 import com.chs.productservice.entity.Product;
+import com.chs.productservice.entity.ProductDeletion;
 import com.chs.productservice.entity.User;
+import com.chs.productservice.repository.ProductDeletionRepository;
 import com.chs.productservice.repository.ProductRepository;
+import com.chs.productservice.repository.ProductSpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timgroup.statsd.StatsDClient;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int JDBC_BATCH_SIZE = 50;
+    private static final String SORT_DATE_ADDED = "dateAdded";
+
+    // change feed 的起點，早於任何產品的時間戳記
+    private static final ProductCursor CHANGES_START = new ProductCursor(LocalDateTime.of(1970, 1, 1, 0, 0), new UUID(0, 0));
+
+    // 與資料庫相同的排序：時間戳記，再以 UUID 的無號位元組順序（PostgreSQL / H2 皆同）
+    private static final Comparator<ProductChange> CHANGE_ORDER = Comparator
+            .comparing(ProductChange::getChangedAt)
+            .thenComparing(ProductChange::getProductId, (a, b) -> {
+                int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return result != 0 ? result : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
     private final ProductRepository productRepository;
+    private final ProductDeletionRepository productDeletionRepository;
     private final UserService userService;
     private final ImageService imageService;
+    private final ProductCache productCache;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final StatsDClient statsDClient;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${product.search.full-text-enabled}")
+    private boolean fullTextSearchEnabled;
+
+    @Value("${product.changes.settle-lag}")
+    private Duration changesSettleLag;
 
     @Transactional
     public ProductResponse createProduct(ProductCreateRequest request, String authenticatedEmail) {
         log.info("Creating product with SKU: {} for user: {}", request.getSku(), authenticatedEmail);
 
-        if (productRepository.existsBySku(request.getSku())) {
-            throw new IllegalArgumentException("Product with SKU " + request.getSku() + " already exists");
-        }
-
         Product product = Product.builder()
                 .name(request.getName())
                 .description(request.getDescription())
@@ -40,42 +113,269 @@ public class ProductService {
                 .owner(userService.findByEmail(authenticatedEmail))
                 .build();
 
-        Product savedProduct = productRepository.saveAndFlush(product);
-        Product refreshedProduct = productRepository.findById(savedProduct.getId())
-                .orElse(savedProduct);
+        // UUID 與時間戳記都由應用程式產生，單一 INSERT 即可回傳完整結果；SKU 重複交由 unique constraint 判斷
+        saveAndFlush(product);
+
+        ProductResponse response = mapToResponse(product);
+        publishChange(ProductStreamEvent.Type.PRODUCT_CREATED, product.getId(), response);
+        return response;
+    }
+
+    /**
+     * 批次建立產品：一次 IN 查詢檢查所有 SKU，再以 JDBC batch insert 寫入
+     * 每一筆各自回報成功或失敗，失敗的項目不影響其他項目
+     */
+    @Transactional
+    public ProductBatchResponse createProducts(List<ProductCreateRequest> requests, String authenticatedEmail) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one product is required");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be at most " + MAX_BATCH_SIZE);
+        }
+        log.info("Creating {} products in batch for user: {}", requests.size(), authenticatedEmail);
+
+        User owner = userService.findByEmail(authenticatedEmail);
 
-        return mapToResponse(refreshedProduct);
+        Set<String> requestedSkus = requests.stream()
+                .filter(Objects::nonNull)
+                .map(ProductCreateRequest::getSku)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> existingSkus = requestedSkus.isEmpty()
+                ? Set.of()
+                : productRepository.findExistingSkus(requestedSkus);
+
+        ProductBatchItemResult[] results = new ProductBatchItemResult[requests.size()];
+        Map<Integer, Product> pending = new LinkedHashMap<>();
+        Set<String> batchSkus = new HashSet<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            ProductCreateRequest request = requests.get(index);
+            String error = validateBatchItem(request, existingSkus, batchSkus);
+            if (error != null) {
+                results[index] = ProductBatchItemResult.builder()
+                        .index(index)
+                        .sku(request == null ? null : request.getSku())
+                        .status(ProductBatchItemResult.Status.FAILED)
+                        .error(error)
+                        .build();
+                continue;
+            }
+
+            pending.put(index, Product.builder()
+                    .name(request.getName())
+                    .description(request.getDescription())
+                    .sku(request.getSku())
+                    .manufacturer(request.getManufacturer())
+                    .quantity(request.getQuantity())
+                    .owner(owner)
+                    .build());
+        }
+
+        long dbStartTime = System.currentTimeMillis();
+        insertInBatches(pending.values());
+        statsDClient.recordExecutionTime("db.product.batch.insert.time", System.currentTimeMillis() - dbStartTime);
+
+        pending.forEach((index, product) -> {
+            ProductResponse response = mapToResponse(product);
+            publishChange(ProductStreamEvent.Type.PRODUCT_CREATED, product.getId(), response);
+            results[index] = ProductBatchItemResult.builder()
+                    .index(index)
+                    .sku(product.getSku())
+                    .status(ProductBatchItemResult.Status.CREATED)
+                    .product(response)
+                    .build();
+        });
+
+        log.info("Batch created {} products, {} failed", pending.size(), requests.size() - pending.size());
+
+        return ProductBatchResponse.builder()
+                .created(pending.size())
+                .failed(requests.size() - pending.size())
+                .results(List.of(results))
+                .build();
     }
 
     @Transactional(readOnly = true)
-    public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(this::mapToResponse)
-                .toList();
+    public ProductPageResponse getAllProducts(ProductFilterRequest filter, String cursor, int limit) {
+        return findPage(ProductSpecifications.matching(filter), filter.getSort(), cursor, limit);
     }
 
+    /**
+     * 產品變更紀錄：since 之後新增、更新（UPSERT）或刪除（DELETE）的產品，依 (時間戳記, id) 由舊到新
+     * 只回傳早於 now - settle-lag 的變更：時間戳記在交易提交前就已產生，
+     * 太新的列可能還有尚未提交、時間戳記更早的交易，等待 settle-lag 後才讀取才不會漏掉
+     * 一律讀 primary：replica 的 lag 超過 settle-lag 時，cursor 會越過尚未 replay 的列而永遠漏掉
+     */
     @Transactional(readOnly = true)
+    public ProductChangesResponse getChanges(String since, int limit) {
+        validatePageLimit(limit);
+
+        ProductCursor from = since == null || since.isBlank() ? CHANGES_START : ProductCursor.decode(since);
+        LocalDateTime until = LocalDateTime.now().minus(changesSettleLag);
+
+        long dbStartTime = System.currentTimeMillis();
+        List<ProductChange> changes = ReadReplicaRouting.onPrimary(() -> findChanges(from, until, limit));
+        statsDClient.recordExecutionTime("db.product.changes.time", System.currentTimeMillis() - dbStartTime);
+
+        // 兩個來源各自有序，合併後取前 limit 筆
+        changes.sort(CHANGE_ORDER);
+        boolean hasMore = changes.size() > limit;
+        List<ProductChange> page = hasMore ? changes.subList(0, limit) : changes;
+
+        ProductCursor next = from;
+        if (!page.isEmpty()) {
+            ProductChange last = page.get(page.size() - 1);
+            next = new ProductCursor(last.getChangedAt(), last.getProductId());
+        }
+
+        return ProductChangesResponse.builder()
+                .changes(List.copyOf(page))
+                .nextCursor(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // 兩個來源各多取一筆，用來判斷是否還有下一頁
+    private List<ProductChange> findChanges(ProductCursor from, LocalDateTime until, int limit) {
+        List<ProductChange> changes = new ArrayList<>();
+        productRepository.findChangedAfter(from.timestamp(), from.id(), until, limit + 1)
+                .forEach(product -> changes.add(ProductChange.builder()
+                        .type(ProductChange.Type.UPSERT)
+                        .productId(product.getId())
+                        .changedAt(product.getDateLastUpdated())
+                        .product(mapToResponse(product))
+                        .build()));
+        productDeletionRepository.findDeletedAfter(from.timestamp(), from.id(), until, limit + 1)
+                .forEach(deletion -> changes.add(ProductChange.builder()
+                        .type(ProductChange.Type.DELETE)
+                        .productId(deletion.getProductId())
+                        .changedAt(deletion.getDateDeleted())
+                        .build()));
+        return changes;
+    }
+
+    /**
+     * 依關鍵字搜尋產品（name、description、manufacturer、sku），依相關度排序並分頁
+     * 搜尋結果以 offset 分頁，cursor 內容是下一頁的 offset
+     */
+    @Transactional(readOnly = true)
+    public ProductPageResponse searchProducts(String query, String cursor, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be at most " + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+        validatePageLimit(limit);
+
+        int offset = decodeOffsetCursor(cursor);
+        String pattern = "%" + escapeLikePattern(query.trim().toLowerCase()) + "%";
+
+        long dbStartTime = System.currentTimeMillis();
+        List<Product> products = fullTextSearchEnabled
+                ? productRepository.searchFullText(query.trim(), pattern, limit + 1, offset)
+                : productRepository.searchByPattern(pattern, limit + 1, offset);
+        statsDClient.recordExecutionTime("db.product.search.time", System.currentTimeMillis() - dbStartTime);
+
+        boolean hasNext = products.size() > limit;
+        List<Product> page = hasNext ? products.subList(0, limit) : products;
+
+        return ProductPageResponse.builder()
+                .products(page.stream().map(this::mapToResponse).toList())
+                .nextCursor(hasNext ? encodeOffsetCursor(offset + limit) : null)
+                .build();
+    }
+
+    /**
+     * 以 NDJSON 串流匯出所有產品，每列寫出後即釋放，記憶體用量不隨產品數量增加
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream outputStream) throws IOException {
+        long count = 0;
+
+        try (Stream<Product> products = productRepository.streamAllOrderByDateAdded()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(objectMapper.writeValueAsBytes(mapToResponse(iterator.next())));
+                outputStream.write('\n');
+
+                // 定期清空 persistence context（含 owner proxy），並把已寫出的資料送出
+                if (++count % EXPORT_BATCH_SIZE == 0) {
+                    entityManager.clear();
+                    outputStream.flush();
+                }
+            }
+        }
+
+        outputStream.flush();
+        return count;
+    }
+
+    /**
+     * 不開啟交易：快取命中時完全不需要向連線池取得連線
+     * 未命中時從 primary 載入，replica 落後的舊資料會在整個 TTL 內留在快取，也會讓寫入者讀不到自己的變更
+     */
     public ProductResponse getProductById(UUID productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+        return productCache.get(productId, id -> ReadReplicaRouting.onPrimary(() -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + id));
+
+            return mapToResponse(product);
+        }));
+    }
+
+    /**
+     * 附上圖片，快取中的 ProductResponse 不會被修改
+     */
+    public ProductResponse withImages(ProductResponse product) {
+        List<ImageResponse> images = imageService.getImagesByProductIds(List.of(product.getId()))
+                .getOrDefault(product.getId(), List.of());
+        return product.toBuilder().images(images).build();
+    }
+
+    /**
+     * 整頁產品的圖片以一次 IN 查詢取得，取代每個產品各查一次
+     */
+    public ProductPageResponse withImages(ProductPageResponse page) {
+        Map<UUID, List<ImageResponse>> imagesByProduct = imageService.getImagesByProductIds(
+                page.getProducts().stream().map(ProductResponse::getId).toList());
+
+        return page.toBuilder()
+                .products(page.getProducts().stream()
+                        .map(product -> product.toBuilder()
+                                .images(imagesByProduct.getOrDefault(product.getId(), List.of()))
+                                .build())
+                        .toList())
+                .build();
+    }
 
-        return mapToResponse(product);
+    /**
+     * 取得產品目前的 ETag，優先使用快取，否則只查詢 date_last_updated
+     * 產品不存在時回傳 null
+     */
+    public String getProductETag(UUID productId) {
+        ProductResponse cached = productCache.getIfPresent(productId);
+        if (cached != null) {
+            return ETags.forProduct(cached);
+        }
+
+        return productRepository.findDateLastUpdatedById(productId)
+                .map(dateLastUpdated -> ETags.forProduct(productId, dateLastUpdated))
+                .orElse(null);
     }
 
     @Transactional(readOnly = true)
-    public List<ProductResponse> getProductsByUser(String authenticatedEmail) {
-        User owner = userService.findByEmail(authenticatedEmail);
-        return productRepository.findByOwner(owner).stream()
-                .map(this::mapToResponse)
-                .toList();
+    public ProductPageResponse getProductsByUser(String authenticatedEmail, String cursor, int limit) {
+        return findPage(ProductSpecifications.hasOwnerEmail(authenticatedEmail), null, cursor, limit);
     }
 
     @Transactional
     public ProductResponse updateProduct(UUID productId, ProductUpdateRequest request, String authenticatedEmail) {
         log.info("Updating product with ID: {} for user: {}", productId, authenticatedEmail);
 
-        User authenticatedUser = userService.findByEmail(authenticatedEmail);
-        Product product = productRepository.findByIdAndOwner(productId, authenticatedUser)
+        Product product = productRepository.findByIdAndOwnerEmail(productId, authenticatedEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found or access denied"));
 
         boolean updated = false;
@@ -91,9 +391,6 @@ public class ProductService {
         }
 
         if (request.getSku() != null && !request.getSku().trim().isEmpty()) {
-            if(!request.getSku().equals(product.getSku()) && productRepository.existsBySku(request.getSku())) {
-                throw new IllegalArgumentException("Product with SKU " + request.getSku() + " already exists");
-            }
             product.setSku(request.getSku().trim());
             updated = true;
         }
@@ -112,35 +409,346 @@ public class ProductService {
             throw new IllegalArgumentException("No valid fields provided for update");
         }
 
-        Product savedProduct = productRepository.saveAndFlush(product);
-        Product refreshedProduct = productRepository.findById(savedProduct.getId()).orElse(savedProduct);
+        saveAndFlush(product);
+        productCache.evict(productId);
+
+        log.info("Product updated successfully with ID: {}", product.getId());
+        ProductResponse response = mapToResponse(product);
+        publishChange(ProductStreamEvent.Type.PRODUCT_UPDATED, productId, response);
+        return response;
+    }
+
+    /**
+     * Applies a signed stock delta in a single conditional UPDATE instead of load-modify-save,
+     * so concurrent adjustments never overwrite each other
+     */
+    @Transactional
+    public ProductQuantityResponse adjustQuantity(UUID productId, int delta, String authenticatedEmail) {
+        log.info("Adjusting quantity of product {} by {} for user: {}", productId, delta, authenticatedEmail);
+
+        int updated = productRepository.adjustQuantity(productId, authenticatedEmail, delta, LocalDateTime.now());
+
+        if (updated == 0) {
+            // 只在失敗時才查詢原因，成功路徑只有一個 UPDATE
+            String ownerEmail = productRepository.findOwnerEmailById(productId)
+                    .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+            if (!ownerEmail.equals(authenticatedEmail)) {
+                throw new IllegalArgumentException("Product not found or access denied");
+            }
+            long current = productRepository.findQuantityById(productId).orElse(0);
+            if (current + delta > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Quantity out of range");
+            }
+            throw new IllegalArgumentException("Insufficient quantity: adjustment would make quantity negative");
+        }
+
+        // 同一交易內仍持有 UPDATE 的 row lock，讀到的就是這次調整後的值
+        Integer quantity = productRepository.findQuantityById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+        productCache.evict(productId);
+        publishChange(ProductStreamEvent.Type.PRODUCT_UPDATED, productId, null);
+
+        log.info("Quantity of product {} adjusted to {}", productId, quantity);
+        return ProductQuantityResponse.builder()
+                .id(productId)
+                .quantity(quantity)
+                .build();
+    }
+
+    /**
+     * 批次調整庫存：一次查詢鎖定所有相關產品，依請求順序逐行套用
+     * 同一產品的多行合併成一個 UPDATE，所有 UPDATE 以 JDBC batch 在同一交易內送出
+     */
+    @Transactional
+    public InventoryAdjustmentResponse adjustInventory(List<InventoryAdjustmentRequest> requests, String authenticatedEmail) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one adjustment is required");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be at most " + MAX_BATCH_SIZE);
+        }
+        log.info("Applying {} inventory adjustments for user: {}", requests.size(), authenticatedEmail);
+
+        User owner = userService.findByEmail(authenticatedEmail);
+
+        Set<UUID> requestedIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(InventoryAdjustmentRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> requestedSkus = requests.stream()
+                .filter(Objects::nonNull)
+                .map(InventoryAdjustmentRequest::getSku)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        long dbStartTime = System.currentTimeMillis();
+        List<Product> products = requestedIds.isEmpty() && requestedSkus.isEmpty()
+                ? List.of()
+                : productRepository.findAllForUpdate(requestedIds, requestedSkus);
+        Map<UUID, Product> productsById = products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<String, Product> productsBySku = products.stream()
+                .collect(Collectors.toMap(Product::getSku, Function.identity()));
+
+        List<InventoryAdjustmentResult> results = new ArrayList<>(requests.size());
+        Map<UUID, Product> adjusted = new LinkedHashMap<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            InventoryAdjustmentRequest request = requests.get(index);
+            Product product = null;
+            String error = validateAdjustment(request);
+
+            if (error == null) {
+                product = request.getProductId() != null
+                        ? productsById.get(request.getProductId())
+                        : productsBySku.get(request.getSku());
+                error = checkAdjustment(product, request.getDelta(), owner);
+            }
+
+            if (error != null) {
+                results.add(InventoryAdjustmentResult.builder()
+                        .index(index)
+                        .productId(request == null ? null : request.getProductId())
+                        .sku(request == null ? null : request.getSku())
+                        .delta(request == null ? null : request.getDelta())
+                        .status(InventoryAdjustmentResult.Status.FAILED)
+                        .error(error)
+                        .build());
+                continue;
+            }
+
+            product.setQuantity(product.getQuantity() + request.getDelta());
+            adjusted.put(product.getId(), product);
+            results.add(InventoryAdjustmentResult.builder()
+                    .index(index)
+                    .productId(product.getId())
+                    .sku(product.getSku())
+                    .delta(request.getDelta())
+                    .status(InventoryAdjustmentResult.Status.APPLIED)
+                    .quantity(product.getQuantity())
+                    .build());
+        }
 
-        log.info("Product updated successfully with ID: {}", refreshedProduct.getId());
-        return mapToResponse(refreshedProduct);
+        // 每個有變動的產品一個 UPDATE，由 Hibernate 依 batch size 分批送出
+        entityManager.flush();
+        statsDClient.recordExecutionTime("db.product.inventory.adjust.time", System.currentTimeMillis() - dbStartTime);
+        adjusted.forEach((id, product) -> {
+            productCache.evict(id);
+            publishChange(ProductStreamEvent.Type.PRODUCT_UPDATED, id, mapToResponse(product));
+        });
+
+        long applied = results.stream()
+                .filter(result -> result.getStatus() == InventoryAdjustmentResult.Status.APPLIED)
+                .count();
+        log.info("Inventory adjustment applied {} lines to {} products, {} failed",
+                applied, adjusted.size(), requests.size() - applied);
+
+        return InventoryAdjustmentResponse.builder()
+                .applied((int) applied)
+                .failed(requests.size() - (int) applied)
+                .results(results)
+                .build();
     }
 
     @Transactional
     public void deleteProduct(UUID id, String authenticatedEmail) {
         log.info("Deleting product with ID: {}", id);
 
-        Product product = productRepository.findById(id)
+        Product product = productRepository.findWithOwnerById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + id));
 
-        User authenticatedUser = userService.findByEmail(authenticatedEmail);
-
-        if (!product.getOwner().getId().equals(authenticatedUser.getId())) {
+        if (!product.getOwner().getEmail().equals(authenticatedEmail)) {
             throw new IllegalArgumentException("Access denied: You can only delete your own products");
         }
 
         // 先刪除所有相關的圖片
         imageService.deleteProductImages(id);
 
-        // 再刪除產品
+        // 再刪除產品，並留下 tombstone 供 change feed 回報刪除
         productRepository.delete(product);
+        entityManager.persist(ProductDeletion.builder().productId(id).build());
+        productCache.evict(id);
+        publishChange(ProductStreamEvent.Type.PRODUCT_DELETED, id, null);
 
         log.info("Product deleted successfully: {}", id);
     }
 
+    private String validateBatchItem(ProductCreateRequest request, Set<String> existingSkus, Set<String> batchSkus) {
+        if (request == null) {
+            return "Product is required";
+        }
+
+        Set<ConstraintViolation<ProductCreateRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+
+        if (existingSkus.contains(request.getSku())) {
+            return "Product with SKU " + request.getSku() + " already exists";
+        }
+        if (!batchSkus.add(request.getSku())) {
+            return "Duplicate SKU " + request.getSku() + " in batch";
+        }
+        return null;
+    }
+
+    private String validateAdjustment(InventoryAdjustmentRequest request) {
+        if (request == null) {
+            return "Adjustment is required";
+        }
+        if (request.getDelta() == null) {
+            return "Delta is required";
+        }
+        if ((request.getProductId() == null) == (request.getSku() == null)) {
+            return "Exactly one of productId or sku is required";
+        }
+        return null;
+    }
+
+    private String checkAdjustment(Product product, int delta, User owner) {
+        if (product == null) {
+            return "Product not found";
+        }
+        if (!product.getOwner().getId().equals(owner.getId())) {
+            return "Access denied: You can only adjust your own products";
+        }
+        long quantity = (long) product.getQuantity() + delta;
+        if (quantity < 0) {
+            return "Insufficient quantity: adjustment would make quantity negative";
+        }
+        if (quantity > Integer.MAX_VALUE) {
+            return "Quantity out of range";
+        }
+        return null;
+    }
+
+    /**
+     * 每 JDBC_BATCH_SIZE 筆 flush 一次（對應 hibernate.jdbc.batch_size），並清空 persistence context 控制記憶體用量
+     */
+    private void insertInBatches(Collection<Product> products) {
+        int count = 0;
+        try {
+            for (Product product : products) {
+                entityManager.persist(product);
+                if (++count % JDBC_BATCH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } catch (PersistenceException e) {
+            // 檢查與寫入之間被其他請求搶先建立相同 SKU
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new IllegalArgumentException("One or more SKUs already exist, no products were created");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 發布變更事件，由 ProductEventStream 在交易提交後推送給 SSE 訂閱者
+     */
+    private void publishChange(ProductStreamEvent.Type type, UUID productId, ProductResponse product) {
+        eventPublisher.publishEvent(ProductStreamEvent.builder()
+                .type(type)
+                .productId(productId)
+                .changedAt(LocalDateTime.now())
+                .product(product)
+                .build());
+    }
+
+    private void saveAndFlush(Product product) {
+        try {
+            productRepository.saveAndFlush(product);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new IllegalArgumentException("Product with SKU " + product.getSku() + " already exists");
+            }
+            throw e;
+        }
+    }
+
+    private void validatePageLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private String encodeOffsetCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int decodeOffsetCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    // LIKE 萬用字元視為一般字元
+    private String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    /**
+     * 以 (date_added, id) keyset 分頁查詢，篩選條件與 cursor 合併成單一 SQL
+     * 多取一筆用來判斷是否還有下一頁
+     */
+    private ProductPageResponse findPage(Specification<Product> filter, String sort, String cursor, int limit) {
+        validatePageLimit(limit);
+        boolean descending = isDescending(sort);
+
+        Specification<Product> spec = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor after = ProductCursor.decode(cursor);
+            spec = spec.and(ProductSpecifications.after(after.timestamp(), after.id(), descending));
+        }
+
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort order = Sort.by(direction, "dateAdded").and(Sort.by(direction, "id"));
+        List<Product> products = productRepository.findBy(spec, query -> query.sortBy(order).limit(limit + 1).all());
+
+        boolean hasNext = products.size() > limit;
+        List<Product> page = hasNext ? products.subList(0, limit) : products;
+
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = page.get(page.size() - 1);
+            nextCursor = new ProductCursor(last.getDateAdded(), last.getId()).encode();
+        }
+
+        return ProductPageResponse.builder()
+                .products(page.stream().map(this::mapToResponse).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private boolean isDescending(String sort) {
+        if (sort == null || sort.isBlank() || SORT_DATE_ADDED.equals(sort)) {
+            return false;
+        }
+        if (("-" + SORT_DATE_ADDED).equals(sort)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Invalid sort: " + sort + ". Supported values: dateAdded, -dateAdded");
+    }
+
     private ProductResponse mapToResponse(Product product) {
         return ProductResponse.builder()
                 .id(product.getId())
@@ -6,127 +6,404 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @Slf4j
 public class S3Service {
 
-    @Autowired(required = false)  // ← S3Client 變成 optional
-    private S3Client s3Client;
+    // DeleteObjects 單次請求的 key 上限
+    public static final int MAX_KEYS_PER_DELETE = 1000;
+
+    @Autowired(required = false)  // ← S3AsyncClient 變成 optional
+    private S3AsyncClient s3AsyncClient;
+
+    @Autowired(required = false)
+    private S3Presigner s3Presigner;
 
     private final String bucketName;
     private final StatsDClient statsDClient;
 
-    // Constructor 不包含 s3Client
+    // Constructor 不包含 s3AsyncClient
     public S3Service(@Value("${aws.s3.bucket-name}") String bucketName,
                      StatsDClient statsDClient) {
         this.bucketName = bucketName;
         this.statsDClient = statsDClient;
     }
 
-    public String uploadFile(MultipartFile file, UUID userId, UUID productId) {
+    /**
+     * 非同步上傳：multipart 暫存檔先移到自己的暫存檔（同一檔案系統時只是 rename），再由 Netty 直接從檔案送出
+     * 呼叫端的執行緒不會等待網路，也不會把檔案讀進 heap；檔案可重複讀取，SDK 重試不需要緩衝
+     */
+    public CompletableFuture<String> uploadFileAsync(MultipartFile file, UUID userId, UUID productId) {
         // 本地測試時跳過 S3
-        if (s3Client == null || bucketName == null || bucketName.trim().isEmpty()) {
+        if (s3AsyncClient == null || bucketName == null || bucketName.trim().isEmpty()) {
             log.warn("S3 not configured, skipping file upload for local testing");
             // 返回一個假的 S3 key 用於測試
-            return String.format("local-test/%s/%s/%s", userId, productId, file.getOriginalFilename());
+            return CompletableFuture.completedFuture(
+                    String.format("local-test/%s/%s/%s", userId, productId, file.getOriginalFilename()));
         }
 
         long startTime = System.currentTimeMillis();
+        String s3Key = newObjectKey(userId, productId, file.getOriginalFilename());
 
+        Path staged;
         try {
-            String timestamp = String.valueOf(System.currentTimeMillis());
-            String originalFilename = file.getOriginalFilename();
-            String s3Key = String.format("%s/%s/%s-%s", userId, productId, timestamp, originalFilename);
+            staged = stageUpload(file);
+        } catch (IOException e) {
+            statsDClient.incrementCounter("s3.upload.error");
+            log.error("Error reading file: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to read file: " + e.getMessage(), e);
+        }
 
-            log.info("Uploading file to S3: bucket={}, key={}", bucketName, s3Key);
+        log.info("Uploading file to S3: bucket={}, key={}", bucketName, s3Key);
 
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
-                    .build();
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .contentType(file.getContentType())
+                .contentLength(file.getSize())
+                .build();
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
+        return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromFile(staged))
+                .handle((response, error) -> {
+                    deleteStagedFile(staged);
+                    if (error != null) {
+                        statsDClient.incrementCounter("s3.upload.error");
+                        Throwable cause = unwrap(error);
+                        log.error("Error uploading file to S3: {}", cause.getMessage(), cause);
+                        throw new CompletionException(new RuntimeException("Failed to upload file to S3: " + cause.getMessage(), cause));
+                    }
 
-            long duration = System.currentTimeMillis() - startTime;
-            statsDClient.recordExecutionTime("s3.upload.time", duration);
-            statsDClient.incrementCounter("s3.upload.success");
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.recordExecutionTime("s3.upload.time", duration);
+                    statsDClient.incrementCounter("s3.upload.success");
 
-            log.info("File uploaded successfully to S3: {} - {}ms", s3Key, duration);
-            return s3Key;
+                    log.info("File uploaded successfully to S3: {} - {}ms", s3Key, duration);
+                    return s3Key;
+                });
+    }
 
-        } catch (S3Exception e) {
-            statsDClient.incrementCounter("s3.upload.error");
-            log.error("Error uploading file to S3: {}", e.awsErrorDetails().errorMessage(), e);
-            throw new RuntimeException("Failed to upload file to S3: " + e.getMessage(), e);
-        } catch (IOException e) {
-            statsDClient.incrementCounter("s3.upload.error");
-            log.error("Error reading file: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to read file: " + e.getMessage(), e);
+    /**
+     * 上傳已在記憶體中的小檔案（例如縮圖），不經過暫存檔
+     */
+    public CompletableFuture<Void> uploadBytesAsync(String s3Key, byte[] content, String contentType) {
+        // 本地測試時跳過 S3
+        if (!isConfigured()) {
+            log.warn("S3 not configured, skipping upload of {} for local testing", s3Key);
+            return CompletableFuture.completedFuture(null);
         }
+
+        long startTime = System.currentTimeMillis();
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .contentType(contentType)
+                .contentLength((long) content.length)
+                .build();
+
+        return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromBytes(content))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        statsDClient.incrementCounter("s3.upload.error");
+                        Throwable cause = unwrap(error);
+                        log.error("Error uploading file to S3: {} - {}", s3Key, cause.getMessage(), cause);
+                        throw new CompletionException(new RuntimeException("Failed to upload file to S3: " + cause.getMessage(), cause));
+                    }
+
+                    statsDClient.recordExecutionTime("s3.upload.time", System.currentTimeMillis() - startTime);
+                    statsDClient.incrementCounter("s3.upload.success");
+                    return null;
+                });
     }
 
-    public void deleteFile(String s3Key) {
+    /**
+     * 將整個物件讀進記憶體；只用於大小已受上傳限制的圖片
+     */
+    public CompletableFuture<ResponseBytes<GetObjectResponse>> downloadFileAsync(String s3Key) {
+        if (!isConfigured()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("S3 not configured, cannot download " + s3Key));
+        }
+
+        long startTime = System.currentTimeMillis();
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .build();
+
+        return s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toBytes())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        statsDClient.incrementCounter("s3.download.error");
+                        Throwable cause = unwrap(error);
+                        log.error("Error downloading file from S3: {} - {}", s3Key, cause.getMessage());
+                        throw new CompletionException(new RuntimeException("Failed to download file from S3: " + cause.getMessage(), cause));
+                    }
+
+                    statsDClient.recordExecutionTime("s3.download.time", System.currentTimeMillis() - startTime);
+                    return response;
+                });
+    }
+
+    /**
+     * 本地測試（未設定 bucket 或沒有 S3 client）時為 false
+     */
+    public boolean isConfigured() {
+        return s3AsyncClient != null && bucketName != null && !bucketName.trim().isEmpty();
+    }
+
+    public CompletableFuture<Void> deleteFileAsync(String s3Key) {
         // 本地測試時跳過 S3
-        if (s3Client == null || bucketName == null || bucketName.trim().isEmpty()) {
+        if (s3AsyncClient == null || bucketName == null || bucketName.trim().isEmpty()) {
             log.warn("S3 not configured, skipping file delete for local testing");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         long startTime = System.currentTimeMillis();
+        log.info("Deleting file from S3: bucket={}, key={}", bucketName, s3Key);
 
-        try {
-            log.info("Deleting file from S3: bucket={}, key={}", bucketName, s3Key);
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .build();
 
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .build();
+        return s3AsyncClient.deleteObject(deleteObjectRequest)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        statsDClient.incrementCounter("s3.delete.error");
+                        Throwable cause = unwrap(error);
+                        log.error("Error deleting file from S3: {}", cause.getMessage(), cause);
+                        throw new CompletionException(new RuntimeException("Failed to delete file from S3: " + cause.getMessage(), cause));
+                    }
 
-            s3Client.deleteObject(deleteObjectRequest);
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.recordExecutionTime("s3.delete.time", duration);
+                    statsDClient.incrementCounter("s3.delete.success");
 
-            long duration = System.currentTimeMillis() - startTime;
-            statsDClient.recordExecutionTime("s3.delete.time", duration);
-            statsDClient.incrementCounter("s3.delete.success");
+                    log.info("File deleted successfully from S3: {} - {}ms", s3Key, duration);
+                    return null;
+                });
+    }
 
-            log.info("File deleted successfully from S3: {} - {}ms", s3Key, duration);
+    /**
+     * 批次刪除：每 MAX_KEYS_PER_DELETE 個 key 一次 DeleteObjects 請求，各批次同時送出
+     * 回傳刪除失敗的 key 與原因；整批請求失敗時，該批所有 key 都列為失敗
+     */
+    public CompletableFuture<Map<String, String>> deleteFiles(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        // 本地測試時跳過 S3
+        if (s3AsyncClient == null || bucketName == null || bucketName.trim().isEmpty()) {
+            log.warn("S3 not configured, skipping delete of {} files for local testing", s3Keys.size());
+            return CompletableFuture.completedFuture(Map.of());
+        }
 
-        } catch (S3Exception e) {
-            statsDClient.incrementCounter("s3.delete.error");
-            log.error("Error deleting file from S3: {}", e.awsErrorDetails().errorMessage(), e);
-            throw new RuntimeException("Failed to delete file from S3: " + e.getMessage(), e);
+        List<String> keys = List.copyOf(new LinkedHashSet<>(s3Keys));
+        List<CompletableFuture<Map<String, String>>> batches = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+            batches.add(deleteBatch(keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()))));
         }
+
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    Map<String, String> failures = new LinkedHashMap<>();
+                    batches.forEach(batch -> failures.putAll(batch.join()));
+                    return failures;
+                });
+    }
+
+    private CompletableFuture<Map<String, String>> deleteBatch(List<String> keys) {
+        long startTime = System.currentTimeMillis();
+        log.info("Deleting {} files from S3: bucket={}", keys.size(), bucketName);
+
+        // quiet mode：回應只列出失敗的 key
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                        .quiet(true)
+                        .build())
+                .build();
+
+        return s3AsyncClient.deleteObjects(deleteObjectsRequest)
+                .handle((response, error) -> {
+                    Map<String, String> failures = new LinkedHashMap<>();
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("Error deleting {} files from S3: {}", keys.size(), cause.getMessage(), cause);
+                        keys.forEach(key -> failures.put(key, String.valueOf(cause.getMessage())));
+                    } else {
+                        response.errors().forEach(s3Error -> failures.put(s3Error.key(), s3Error.code() + ": " + s3Error.message()));
+                    }
+
+                    long duration = System.currentTimeMillis() - startTime;
+                    statsDClient.recordExecutionTime("s3.delete.batch.time", duration);
+                    statsDClient.count("s3.delete.success", keys.size() - failures.size());
+                    if (!failures.isEmpty()) {
+                        statsDClient.count("s3.delete.error", failures.size());
+                        log.warn("Failed to delete {} of {} files from S3: {}", failures.size(), keys.size(), failures);
+                    }
+
+                    log.info("Deleted {} files from S3 - {}ms", keys.size() - failures.size(), duration);
+                    return failures;
+                });
+    }
+
+    /**
+     * 新物件的 key：{userId}/{productId}/{timestamp}-{fileName}
+     */
+    public String newObjectKey(UUID userId, UUID productId, String fileName) {
+        return String.format("%s/%s/%s-%s", userId, productId, System.currentTimeMillis(), fileName);
+    }
+
+    /**
+     * 預簽名 PUT URL：用戶端直接上傳到 S3，檔案不經過本服務
+     * Content-Type 與 Content-Length 都在簽章內，S3 會拒絕不一致的上傳
+     * 只有 CPU 運算（本地簽章），不會呼叫 S3
+     */
+    public PresignedUrl presignUpload(String s3Key, String contentType, long contentLength, Duration expiry) {
+        // 本地測試時返回假的 URL
+        if (s3Presigner == null || bucketName == null || bucketName.trim().isEmpty()) {
+            log.warn("S3 not configured, returning a fake upload URL for local testing");
+            return new PresignedUrl("local-test://" + s3Key,
+                    Map.of("content-type", contentType, "content-length", String.valueOf(contentLength)),
+                    Instant.now().plus(expiry));
+        }
+
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(s3Key)
+                        .contentType(contentType)
+                        .contentLength(contentLength)
+                        .build())
+                .build());
+        statsDClient.incrementCounter("s3.presign.upload");
+
+        // host 由 HTTP client 依 URL 自動帶入，其餘簽入的 header 用戶端必須原樣送出
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase("host")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUrl(presigned.url().toString(), headers, presigned.expiration());
+    }
+
+    /**
+     * 預簽名 GET URL，在 expiresAt 失效；只有 CPU 運算（本地簽章），不會呼叫 S3
+     */
+    public PresignedUrl presignDownload(String s3Key, Instant expiresAt) {
+        // 本地測試時返回假的 URL
+        if (s3Presigner == null || bucketName == null || bucketName.trim().isEmpty()) {
+            return new PresignedUrl("local-test://" + s3Key, Map.of(), expiresAt);
+        }
+
+        String url = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                        .signatureDuration(Duration.between(Instant.now(), expiresAt))
+                        .getObjectRequest(GetObjectRequest.builder()
+                                .bucket(bucketName)
+                                .key(s3Key)
+                                .build())
+                        .build())
+                .url().toString();
+        return new PresignedUrl(url, Map.of(), expiresAt);
+    }
+
+    /**
+     * 預簽名 URL 與用戶端必須送出的 header
+     */
+    public record PresignedUrl(String url, Map<String, String> headers, Instant expiration) {
     }
 
     public boolean fileExists(String s3Key) {
+        return join(fileExistsAsync(s3Key));
+    }
+
+    public CompletableFuture<Boolean> fileExistsAsync(String s3Key) {
         // 本地測試時假設文件存在
-        if (s3Client == null || bucketName == null || bucketName.trim().isEmpty()) {
+        if (s3AsyncClient == null || bucketName == null || bucketName.trim().isEmpty()) {
             log.warn("S3 not configured, returning true for local testing");
-            return true;
+            return CompletableFuture.completedFuture(true);
+        }
+
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .build();
+
+        return s3AsyncClient.headObject(headObjectRequest)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return true;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof NoSuchKeyException) {
+                        return false;
+                    }
+                    log.error("Error checking file existence in S3: {}", cause.getMessage());
+                    throw new CompletionException(new RuntimeException("Failed to check file existence: " + cause.getMessage(), cause));
+                });
+    }
+
+    // transferTo 失敗時刪除已建立的暫存檔，避免留在暫存目錄
+    private Path stageUpload(MultipartFile file) throws IOException {
+        Path staged = Files.createTempFile("s3-upload-", null);
+        try {
+            file.transferTo(staged.toFile());
+            return staged;
+        } catch (IOException | RuntimeException e) {
+            deleteStagedFile(staged);
+            throw e;
         }
+    }
+
+    private void deleteStagedFile(Path staged) {
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged upload {}: {}", staged, e.getMessage());
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
+    // 同步呼叫端收到原本的 RuntimeException，而不是 CompletionException
+    private static <T> T join(CompletableFuture<T> future) {
         try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .build();
-
-            s3Client.headObject(headObjectRequest);
-            return true;
-
-        } catch (NoSuchKeyException e) {
-            return false;
-        } catch (S3Exception e) {
-            log.error("Error checking file existence in S3: {}", e.awsErrorDetails().errorMessage());
-            throw new RuntimeException("Failed to check file existence: " + e.getMessage(), e);
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 }
@@ -0,0 +1,241 @@
+package com.chs.productservice.service;
+
+import com.chs.productservice.entity.StorageCleanupTask;
+import com.chs.productservice.repository.StorageCleanupTaskRepository;
+import com.timgroup.statsd.StatsDClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for S3 deletes
+ * Callers record keys in storage_cleanup_outbox inside their own transaction, so a request only pays for the INSERT;
+ * after commit (and on product.storage-cleanup.poll-interval) a worker leases due rows, deletes them with batched
+ * DeleteObjects requests and removes the rows S3 confirmed. Failed keys are retried with exponential backoff.
+ * Leases let several instances drain the same table without deleting a key twice in parallel.
+ */
+@Service
+@Slf4j
+public class StorageCleanupService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StorageCleanupTaskRepository taskRepository;
+    private final S3Service s3Service;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService storageExecutor;
+    private final StatsDClient statsDClient;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration backoffInitial;
+    private final Duration backoffMax;
+    private final boolean drainAfterCommit;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    public StorageCleanupService(StorageCleanupTaskRepository taskRepository,
+                                 S3Service s3Service,
+                                 TransactionTemplate transactionTemplate,
+                                 ExecutorService storageExecutor,
+                                 StatsDClient statsDClient,
+                                 @Value("${product.storage-cleanup.batch-size}") int batchSize,
+                                 @Value("${product.storage-cleanup.lease}") Duration lease,
+                                 @Value("${product.storage-cleanup.backoff-initial}") Duration backoffInitial,
+                                 @Value("${product.storage-cleanup.backoff-max}") Duration backoffMax,
+                                 @Value("${product.storage-cleanup.drain-after-commit}") boolean drainAfterCommit) {
+        this.taskRepository = taskRepository;
+        this.s3Service = s3Service;
+        this.transactionTemplate = transactionTemplate;
+        this.storageExecutor = storageExecutor;
+        this.statsDClient = statsDClient;
+        // 一個 batch 對應一次 DeleteObjects
+        this.batchSize = Math.min(batchSize, S3Service.MAX_KEYS_PER_DELETE);
+        this.lease = lease;
+        this.backoffInitial = backoffInitial;
+        this.backoffMax = backoffMax;
+        this.drainAfterCommit = drainAfterCommit;
+    }
+
+    /**
+     * 在呼叫端的交易中寫入 outbox；rollback 時一併撤銷，檔案保留
+     * 提交後喚醒 worker，不等 S3
+     */
+    public void enqueue(Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        taskRepository.saveAll(s3Keys.stream()
+                .map(s3Key -> StorageCleanupTask.builder().s3Key(s3Key).nextAttemptAt(now).build())
+                .toList());
+        statsDClient.count("storage.cleanup.enqueued", s3Keys.size());
+
+        if (!drainAfterCommit) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestDrain();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestDrain();
+            }
+        });
+    }
+
+    /**
+     * 在 storage executor 上執行 drain；已在執行中時由目前的 drain 多跑一輪
+     */
+    public void requestDrain() {
+        drainRequested.set(true);
+        if (draining.get()) {
+            return;
+        }
+        try {
+            storageExecutor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 關機中，留給下一次啟動的輪詢處理
+            log.warn("Storage cleanup drain rejected, leaving tasks for the next poll");
+        }
+    }
+
+    /**
+     * 定期輪詢：處理重試到期與其他 instance 留下（lease 已過期）的任務，並回報積壓
+     */
+    @Scheduled(fixedDelayString = "${product.storage-cleanup.poll-interval}",
+            initialDelayString = "${product.storage-cleanup.poll-interval}")
+    public void poll() {
+        drainRequested.set(true);
+        drain();
+        reportBacklog();
+    }
+
+    /**
+     * 處理所有到期的任務，每個 batch 一次 DeleteObjects
+     */
+    public void drain() {
+        // 釋放後再檢查一次：執行期間送來、但看到 draining 而直接返回的請求不會遺失
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                while (drainRequested.getAndSet(false)) {
+                    while (drainBatch() == batchSize) {
+                        // 還有下一批
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Storage cleanup drain failed", e);
+                statsDClient.incrementCounter("storage.cleanup.drain.error");
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. 領取到期的任務：短交易內鎖定並設定 lease，S3 呼叫期間不持有連線
+        List<StorageCleanupTask> tasks = transactionTemplate.execute(status -> {
+            List<StorageCleanupTask> due = taskRepository.findDueForUpdate(now, batchSize);
+            due.forEach(task -> task.setLockedUntil(now.plus(lease)));
+            return due;
+        });
+        if (tasks == null || tasks.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 一次 DeleteObjects；整批失敗時每個 key 都視為失敗
+        List<String> keys = tasks.stream().map(StorageCleanupTask::getS3Key).toList();
+        long startTime = System.currentTimeMillis();
+        Map<String, String> failures;
+        try {
+            failures = s3Service.deleteFiles(keys).get(lease.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("Failed to delete {} files from S3", keys.size(), e);
+            String reason = e.getCause() != null ? e.getCause().toString() : e.toString();
+            failures = keys.stream().distinct().collect(Collectors.toMap(key -> key, key -> reason));
+        }
+        statsDClient.recordExecutionTime("storage.cleanup.batch.time", System.currentTimeMillis() - startTime);
+
+        // 3. 移除已刪除的任務，失敗的排定重試並釋放 lease
+        Map<String, String> failed = failures;
+        List<UUID> deletedIds = tasks.stream()
+                .filter(task -> !failed.containsKey(task.getS3Key()))
+                .map(StorageCleanupTask::getId)
+                .toList();
+        List<UUID> failedIds = tasks.stream()
+                .filter(task -> failed.containsKey(task.getS3Key()))
+                .map(StorageCleanupTask::getId)
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deletedIds.isEmpty()) {
+                taskRepository.deleteAllByIdInBatch(deletedIds);
+            }
+            if (!failedIds.isEmpty()) {
+                LocalDateTime failedAt = LocalDateTime.now();
+                for (StorageCleanupTask task : taskRepository.findAllById(failedIds)) {
+                    String reason = failed.get(task.getS3Key());
+                    task.setAttempts(task.getAttempts() + 1);
+                    task.setNextAttemptAt(failedAt.plus(backoff(task.getAttempts())));
+                    task.setLockedUntil(null);
+                    task.setLastError(reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason);
+                    log.warn("Failed to delete file from S3 (attempt {}): {} - {}", task.getAttempts(), task.getS3Key(), reason);
+                }
+            }
+        });
+
+        statsDClient.count("storage.cleanup.deleted", deletedIds.size());
+        statsDClient.count("storage.cleanup.retry", failedIds.size());
+        log.info("Storage cleanup batch: deleted={}, failed={}", deletedIds.size(), failedIds.size());
+        return tasks.size();
+    }
+
+    /**
+     * 指數退避（initial * 2^(attempts-1)，上限 backoff-max），加上最多 20% 的 jitter 避免同時重試
+     */
+    Duration backoff(int attempts) {
+        long initialMillis = backoffInitial.toMillis();
+        long maxMillis = backoffMax.toMillis();
+        long millis = attempts >= 31 ? maxMillis : Math.min(maxMillis, initialMillis << (attempts - 1));
+        long jitter = (long) (millis * 0.2 * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(millis + jitter);
+    }
+
+    /**
+     * storage.cleanup.pending：尚未刪除的 key 數；storage.cleanup.lag.ms：最舊任務等待的時間
+     */
+    private void reportBacklog() {
+        try {
+            long pending = taskRepository.count();
+            LocalDateTime oldest = taskRepository.findOldestDateCreated();
+            long lagMillis = oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis());
+            statsDClient.recordGaugeValue("storage.cleanup.pending", pending);
+            statsDClient.recordGaugeValue("storage.cleanup.lag.ms", lagMillis);
+        } catch (Exception e) {
+            log.error("Failed to report storage cleanup backlog", e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.chs.productservice.repository.UserRepository;
 import com.timgroup.statsd.StatsDClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,12 +29,6 @@ public class UserService {
     public UserResponse createUser(UserCreateRequest request) {
         log.info("Creating user with email: {}", request.getEmail());
 
-        long dbStartTime = System.currentTimeMillis();
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("User with email " + request.getEmail() + " already exists");
-        }
-        statsDClient.recordExecutionTime("db.user.existsByEmail.time", System.currentTimeMillis() - dbStartTime);
-
         User user = User.builder()
                 .email(request.getEmail())
                 .password(passwordEncoder.encode(request.getPassword()))
@@ -41,31 +36,35 @@ public class UserService {
                 .lastName(request.getLastName())
                 .build();
 
-        dbStartTime = System.currentTimeMillis();
-        User savedUser = userRepository.saveAndFlush(user);
+        // UUID 與時間戳記都由應用程式產生，單一 INSERT 即可回傳完整結果；email 重複交由 unique constraint 判斷
+        long dbStartTime = System.currentTimeMillis();
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new IllegalArgumentException("User with email " + request.getEmail() + " already exists");
+            }
+            throw e;
+        }
         statsDClient.recordExecutionTime("db.user.save.time", System.currentTimeMillis() - dbStartTime);
 
-        dbStartTime = System.currentTimeMillis();
-        User refreshedUser = userRepository.findById(savedUser.getId()).orElse(savedUser);
-        statsDClient.recordExecutionTime("db.user.findById.time", System.currentTimeMillis() - dbStartTime);
-
-        log.info("User created successfully with ID: {}", savedUser.getId());
+        log.info("User created successfully with ID: {}", user.getId());
 
         // Send verification email via SNS
         long snsStartTime = System.currentTimeMillis();
         try {
-            emailVerificationService.sendVerificationEmail(refreshedUser);
+            emailVerificationService.sendVerificationEmail(user);
             statsDClient.recordExecutionTime("sns.verification.send.time", System.currentTimeMillis() - snsStartTime);
             statsDClient.incrementCounter("sns.verification.send.success");
-            log.info("Verification email sent for user: {}", refreshedUser.getEmail());
+            log.info("Verification email sent for user: {}", user.getEmail());
         } catch (Exception e) {
             statsDClient.recordExecutionTime("sns.verification.send.time", System.currentTimeMillis() - snsStartTime);
             statsDClient.incrementCounter("sns.verification.send.failure");
-            log.error("Failed to send verification email for: {}", refreshedUser.getEmail(), e);
+            log.error("Failed to send verification email for: {}", user.getEmail(), e);
             // Don't fail user creation if email fails, User can request resend verification email later
         }
 
-        return mapToResponse(refreshedUser);
+        return mapToResponse(user);
     }
 
     @Transactional(readOnly = true)
@@ -117,15 +116,11 @@ public class UserService {
         }
 
         dbStartTime = System.currentTimeMillis();
-        User savedUser = userRepository.saveAndFlush(user);
+        userRepository.saveAndFlush(user);
         statsDClient.recordExecutionTime("db.user.update.time", System.currentTimeMillis() - dbStartTime);
 
-        dbStartTime = System.currentTimeMillis();
-        User refreshedUser = userRepository.findById(savedUser.getId()).orElse(savedUser);
-        statsDClient.recordExecutionTime("db.user.findById.time", System.currentTimeMillis() - dbStartTime);
-
-        log.info("User updated successfully with ID: {}", savedUser.getId());
-        return mapToResponse(refreshedUser);
+        log.info("User updated successfully with ID: {}", user.getId());
+        return mapToResponse(user);
     }
 
     @Transactional
@@ -0,0 +1,38 @@
+-- PostgreSQL-only schema objects that Hibernate ddl-auto cannot express
+-- Runs after Hibernate on every startup (spring.jpa.defer-datasource-initialization), so every statement must be idempotent
+
+-- Full-text search over products (GET /v1/product/search)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(sku, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(manufacturer, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(description, '')), 'C')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
+
+-- Partial SKU matches (ILIKE '%...%')
+CREATE INDEX IF NOT EXISTS idx_products_sku_trgm ON products USING GIN (sku gin_trgm_ops);
+
+-- Stock can never go below zero, even for writes that bypass the entity (PATCH /v1/product/{id}/quantity)
+-- Added only when missing: ADD CONSTRAINT takes an ACCESS EXCLUSIVE lock, so it must not run on every startup.
+-- NOT VALID keeps that lock short; VALIDATE then checks the existing rows under a lock that still allows writes,
+-- in its own statement, and is skipped once the constraint is validated.
+-- DO bodies are single-quoted because Spring's script splitter does not understand $$ quoting
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = ''products''::regclass AND conname = ''chk_products_quantity_non_negative'') THEN
+        ALTER TABLE products ADD CONSTRAINT chk_products_quantity_non_negative CHECK (quantity >= 0) NOT VALID;
+    END IF;
+END';
+
+DO 'BEGIN
+    IF EXISTS (SELECT 1 FROM pg_constraint
+               WHERE conrelid = ''products''::regclass AND conname = ''chk_products_quantity_non_negative''
+                 AND NOT convalidated) THEN
+        ALTER TABLE products VALIDATE CONSTRAINT chk_products_quantity_non_negative;
+    END IF;
+END';
@@ -0,0 +1,68 @@
+package com.chs.productservice.benchmark;
+
+import com.chs.productservice.service.ImageUrlCache;
+import com.chs.productservice.service.S3Service;
+import com.timgroup.statsd.NoOpStatsDClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cost of adding presigned download URLs to a 100-image page: signing every URL vs ImageUrlCache hits
+ * Signing is local SigV4 (HMAC-SHA256 chain), no request is sent to S3
+ * Not part of the regular test run (surefire only picks up *Test classes), run it explicitly:
+ * ./mvnw test -Dtest=PresignedUrlBenchmark
+ */
+@DisplayName("Presigned URL benchmark - sign per request vs cached")
+public class PresignedUrlBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP_ITERATIONS = 500;
+    private static final int MEASURED_ITERATIONS = 2_000;
+
+    @Test
+    void compareSigningAndCache() {
+        try (S3Presigner presigner = S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("AKIDEXAMPLE", "secret")))
+                .build()) {
+            S3Service s3Service = new S3Service("benchmark-bucket", new NoOpStatsDClient());
+            ReflectionTestUtils.setField(s3Service, "s3Presigner", presigner);
+            ImageUrlCache cache = new ImageUrlCache(Duration.ofMinutes(50), Duration.ofMinutes(10), 100_000,
+                    s3Service, new NoOpStatsDClient());
+
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                keys.add(UUID.randomUUID() + "/" + UUID.randomUUID() + "/" + System.currentTimeMillis() + "-image-" + i + ".png");
+            }
+
+            System.out.printf("%-8s %16s%n", "mode", "us per page");
+            run("sign", () -> keys.forEach(key -> s3Service.presignDownload(key, cache.currentExpiry())));
+            run("cached", () -> keys.forEach(cache::get));
+            assertEquals(cache.get(keys.get(0)).url(), cache.get(keys.get(0)).url());
+        }
+    }
+
+    private void run(String name, Runnable page) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            page.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            page.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-8s %16.1f%n", name, elapsed / 1_000.0 / MEASURED_ITERATIONS);
+    }
+}
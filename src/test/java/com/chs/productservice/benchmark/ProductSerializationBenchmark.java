@@ -0,0 +1,101 @@
+package com.chs.productservice.benchmark;
+
+import com.chs.productservice.dto.ProductPageResponse;
+import com.chs.productservice.dto.ProductResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Payload size and serialization cost of a full product page in JSON, CBOR and Smile
+ * Not part of the regular test run (surefire only picks up *Test classes), run it explicitly:
+ * ./mvnw test -Dtest=ProductSerializationBenchmark
+ */
+@DisplayName("Product serialization benchmark - JSON vs CBOR vs Smile")
+public class ProductSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP_ITERATIONS = 5_000;
+    private static final int MEASURED_ITERATIONS = 20_000;
+
+    @Test
+    void compareFormats() throws Exception {
+        ProductPageResponse page = samplePage();
+
+        // 與應用程式相同的設定（JacksonConfig 使用 Boot 的 builder，fail-on-unknown-properties 開啟）
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().failOnUnknownProperties(true).build());
+        mappers.put("cbor", Jackson2ObjectMapperBuilder.cbor().failOnUnknownProperties(true).build());
+        mappers.put("smile", Jackson2ObjectMapperBuilder.smile().failOnUnknownProperties(true).build());
+
+        System.out.printf("%-6s %10s %14s %14s%n", "format", "bytes", "write us/op", "read us/op");
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] payload = mapper.writeValueAsBytes(page);
+            assertEquals(page, mapper.readValue(payload, ProductPageResponse.class));
+
+            run(mapper, page, payload, WARMUP_ITERATIONS);
+            long writeNanos = measureWrite(mapper, page);
+            long readNanos = measureRead(mapper, payload);
+
+            System.out.printf("%-6s %10d %14.1f %14.1f%n", entry.getKey(), payload.length,
+                    writeNanos / 1_000.0 / MEASURED_ITERATIONS, readNanos / 1_000.0 / MEASURED_ITERATIONS);
+        }
+    }
+
+    private void run(ObjectMapper mapper, ProductPageResponse page, byte[] payload, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            mapper.writeValueAsBytes(page);
+            mapper.readValue(payload, ProductPageResponse.class);
+        }
+    }
+
+    private long measureWrite(ObjectMapper mapper, ProductPageResponse page) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            mapper.writeValueAsBytes(page);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long measureRead(ObjectMapper mapper, byte[] payload) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            mapper.readValue(payload, ProductPageResponse.class);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private ProductPageResponse samplePage() {
+        LocalDateTime now = LocalDateTime.now();
+        UUID ownerId = UUID.randomUUID();
+        List<ProductResponse> products = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            products.add(ProductResponse.builder()
+                    .id(UUID.randomUUID())
+                    .name("Product " + i)
+                    .description("Description of product " + i + " with a sentence or two of marketing copy")
+                    .sku("SKU-" + (100_000 + i))
+                    .manufacturer("Manufacturer " + (i % 10))
+                    .quantity(i * 3)
+                    .dateAdded(now.minusDays(i))
+                    .dateLastUpdated(now)
+                    .ownerUserId(ownerId)
+                    .build());
+        }
+        return ProductPageResponse.builder()
+                .products(products)
+                .nextCursor("MjAyNi0xMC0xNlQwMDowMDowMHw")
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.chs.productservice.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and latency of an image-upload burst on Tomcat's default 200 platform threads vs virtual threads
+ * Each request does what POST /v1/product/{id}/image does: an authentication lookup and an INSERT, each holding one of
+ * the 10 Hikari connections, and an S3 PUT limited by the AWS SDK's HTTP connection pool. Latencies are simulated.
+ * Not part of the regular test run (surefire only picks up *Test classes), run it explicitly:
+ * ./mvnw test -Dtest=VirtualThreadBenchmark
+ */
+@DisplayName("Request execution benchmark - platform thread pool vs virtual threads")
+public class VirtualThreadBenchmark {
+
+    private static final int REQUESTS = 4_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int DB_POOL_SIZE = 10;
+    private static final long DB_LATENCY_MILLIS = 2;
+    private static final long S3_LATENCY_MILLIS = 200;
+    // AWS SDK Apache client 預設 50 條連線；另一組模擬調高連線上限後的情況
+    private static final int[] S3_MAX_CONNECTIONS = {50, 1_000};
+
+    @Test
+    void compareExecutors() throws Exception {
+        System.out.printf("%-10s %8s %12s %10s %10s%n", "executor", "s3 conns", "req/s", "p50 ms", "p99 ms");
+        for (int s3MaxConnections : S3_MAX_CONNECTIONS) {
+            run("platform", s3MaxConnections, () -> Executors.newFixedThreadPool(TOMCAT_MAX_THREADS));
+            run("virtual", s3MaxConnections, Executors::newVirtualThreadPerTaskExecutor);
+        }
+    }
+
+    private void run(String name, int s3MaxConnections, Supplier<ExecutorService> executorFactory) throws Exception {
+        Semaphore dbPool = new Semaphore(DB_POOL_SIZE, true);
+        Semaphore s3Pool = new Semaphore(s3MaxConnections, true);
+        long[] latencies = new long[REQUESTS];
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = executorFactory.get()) {
+            List<Future<?>> results = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                results.add(executor.submit(() -> {
+                    handleUpload(dbPool, s3Pool);
+                    latencies[index] = System.nanoTime() - submitted;
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.MINUTES);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        assertEquals(REQUESTS, Arrays.stream(latencies).filter(latency -> latency > 0).count());
+        System.out.printf("%-10s %8d %12.0f %10.1f %10.1f%n", name, s3MaxConnections,
+                REQUESTS / (elapsed / 1e9), percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    // 認證 / 擁有者查詢 + S3 上傳 + INSERT image，順序與 ImageService.uploadImage 相同
+    private void handleUpload(Semaphore dbPool, Semaphore s3Pool) throws InterruptedException {
+        withPermit(dbPool, DB_LATENCY_MILLIS);
+        withPermit(s3Pool, S3_LATENCY_MILLIS);
+        withPermit(dbPool, DB_LATENCY_MILLIS);
+    }
+
+    private void withPermit(Semaphore pool, long latencyMillis) throws InterruptedException {
+        pool.acquire();
+        try {
+            Thread.sleep(latencyMillis);
+        } finally {
+            pool.release();
+        }
+    }
+
+    private double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+}
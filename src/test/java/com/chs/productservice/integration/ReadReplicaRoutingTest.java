@@ -0,0 +1,181 @@
+package com.chs.productservice.integration;
+
+import com.chs.productservice.config.ReadReplicaRouting;
+import com.chs.productservice.dto.ProductChangesResponse;
+import com.chs.productservice.dto.ProductResponse;
+import com.chs.productservice.service.ProductCache;
+import com.chs.productservice.service.ProductCursor;
+import com.chs.productservice.service.ProductService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Read replica routing：replica 指向同一個 H2 資料庫，以兩個 pool 的 active connection 判斷實際走哪一邊
+ * lag 檢查與 storage cleanup 輪詢的 interval（同時也是 initial delay）設為 1h，測試期間不會執行，避免覆寫 lag 或占用連線
+ */
+@DisplayName("Read Replica Routing Tests")
+@TestPropertySource(properties = {
+        "product.datasource.replica.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "product.datasource.replica.username=sa",
+        "product.datasource.replica.password=",
+        "product.datasource.replica.lag-query=SELECT 0",
+        "product.datasource.replica.hikari.allow-pool-suspension=true",
+        "product.datasource.replica.lag-check-interval=1h",
+        "product.storage-cleanup.poll-interval=1h"
+})
+public class ReadReplicaRoutingTest extends BaseIntegrationTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private ReadReplicaRouting routing;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void resetRouting() {
+        SecurityContextHolder.clearContext();
+        routing.updateReplicaLag(Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should route read-only transactions to the replica")
+    void shouldRouteReadOnlyTransactionsToReplica() {
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.REPLICA));
+    }
+
+    @Test
+    @DisplayName("Should route read-write transactions to the primary")
+    void shouldRouteReadWriteTransactionsToPrimary() {
+        assertThat(connectionTarget(false), equalTo(ReadReplicaRouting.Target.PRIMARY));
+    }
+
+    @Test
+    @DisplayName("Should read from the primary right after the user's own write")
+    void shouldReadYourOwnWritesFromPrimary() {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("writer@example.com", null, List.of()));
+
+        assertThat(connectionTarget(false), equalTo(ReadReplicaRouting.Target.PRIMARY));
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.PRIMARY));
+
+        // 其他使用者不受影響
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("reader@example.com", null, List.of()));
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.REPLICA));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the primary while the replica lags")
+    void shouldFallBackToPrimaryWhenReplicaLags() {
+        routing.updateReplicaLag(Duration.ofMinutes(1));
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.PRIMARY));
+
+        routing.updateReplicaLag(null);
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.PRIMARY));
+
+        routing.updateReplicaLag(Duration.ZERO);
+        assertThat(connectionTarget(true), equalTo(ReadReplicaRouting.Target.REPLICA));
+    }
+
+    @Test
+    @DisplayName("Should serve the API with replica routing enabled")
+    void shouldServeApiWithReplicaRouting() {
+        UserTestData user = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(user.authHeader(), generateUniqueSku(), "Product", "Description", "Manufacturer", 5);
+
+        given()
+                .header("Authorization", user.authHeader())
+                .when()
+                .get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value());
+    }
+
+    @Test
+    @DisplayName("Should load product cache misses from the primary")
+    void shouldLoadProductCacheMissesFromPrimary() {
+        UserTestData user = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(user.authHeader(), generateUniqueSku(), "Cached Product", "Description", "Manufacturer", 5);
+        productCache.evict(UUID.fromString(productId));
+
+        // replica 暫停時取得連線會一直等待；未命中的載入若走 replica 就會逾時
+        replicaDataSource.getHikariPoolMXBean().suspendPool();
+        try {
+            ProductResponse product = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> productService.getProductById(UUID.fromString(productId)));
+            assertThat(product.getName(), equalTo("Cached Product"));
+        } finally {
+            replicaDataSource.getHikariPoolMXBean().resumePool();
+        }
+    }
+
+    @Test
+    @DisplayName("Should read the change feed from the primary")
+    void shouldReadChangeFeedFromPrimary() {
+        String since = new ProductCursor(LocalDateTime.now().minusSeconds(1), new UUID(0, 0)).encode();
+        UserTestData user = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(user.authHeader(), generateUniqueSku(), "Changed Product", "Description", "Manufacturer", 5);
+
+        replicaDataSource.getHikariPoolMXBean().suspendPool();
+        try {
+            ProductChangesResponse changes = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> productService.getChanges(since, ProductService.MAX_PAGE_SIZE));
+            assertThat(changes.getChanges().stream().map(change -> change.getProductId().toString()).toList(),
+                    hasItem(productId));
+        } finally {
+            replicaDataSource.getHikariPoolMXBean().resumePool();
+        }
+    }
+
+    // 在交易中執行一個查詢，回傳當下持有連線的 pool
+    private ReadReplicaRouting.Target connectionTarget(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            int replicaActive = replicaDataSource.getHikariPoolMXBean().getActiveConnections();
+            int primaryActive = primaryDataSource.getHikariPoolMXBean().getActiveConnections();
+            assertThat(replicaActive + primaryActive, equalTo(1));
+            return replicaActive == 1 ? ReadReplicaRouting.Target.REPLICA : ReadReplicaRouting.Target.PRIMARY;
+        });
+    }
+}
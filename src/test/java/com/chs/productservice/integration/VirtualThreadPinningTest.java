@@ -0,0 +1,132 @@
+package com.chs.productservice.integration;
+
+import io.restassured.http.ContentType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * 以虛擬執行緒模式執行主要的請求路徑，並用 JFR 的 jdk.VirtualThreadPinned 事件檢查是否有 pinning
+ * H2 只用於測試且內部大量使用 synchronized，經過 org.h2 的事件不列入；其餘（Hikari、Hibernate、Tomcat、本專案）不應發生
+ */
+@DisplayName("Virtual Thread Pinning Tests")
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadPinningTest extends BaseIntegrationTest {
+
+    private static final int CONCURRENT_CLIENTS = 16;
+
+    @Test
+    @DisplayName("Should serve requests on virtual threads without pinning")
+    void shouldServeRequestsWithoutPinning() throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        AtomicInteger virtualThreadsStarted = new AtomicInteger();
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.enable("jdk.VirtualThreadStart");
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.onEvent("jdk.VirtualThreadStart", event -> virtualThreadsStarted.incrementAndGet());
+            recording.startAsync();
+
+            UserTestData user = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+            exerciseRequestPaths(user);
+
+            // 同時送出請求，讓連線池與鎖真的發生競爭（沒有競爭時 pinning 不會造成 park，也就不會有事件）
+            ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_CLIENTS);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int i = 0; i < CONCURRENT_CLIENTS; i++) {
+                    results.add(clients.submit(() -> exerciseRequestPaths(user)));
+                }
+                for (Future<?> result : results) {
+                    result.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                clients.shutdownNow();
+            }
+
+            recording.stop();
+        }
+
+        List<String> offending = pinned.stream()
+                .filter(event -> !involvesFrame(event, "org.h2."))
+                .map(VirtualThreadPinningTest::describe)
+                .collect(Collectors.toList());
+
+        assertThat(virtualThreadsStarted.get(), greaterThan(0));
+        assertThat(offending, empty());
+    }
+
+    // 認證查詢、JDBC 寫入、讀取、圖片上傳（測試環境未設定 bucket，不會呼叫 S3）、刪除
+    private void exerciseRequestPaths(UserTestData user) {
+        String productId = createTestProduct(user.authHeader(), "SKU-" + UUID.randomUUID(), "Product", "Description", "Manufacturer", 5);
+
+        given()
+                .header("Authorization", user.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{\"delta\": 2}")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.OK.value());
+
+        given()
+                .queryParam("ownerId", user.userId())
+                .queryParam("include", "images")
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value());
+
+        given()
+                .header("Authorization", user.authHeader())
+                .multiPart("file", "front.png", new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.CREATED.value());
+
+        given()
+                .header("Authorization", user.authHeader())
+                .when().delete(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.NO_CONTENT.value());
+    }
+
+    private static boolean involvesFrame(RecordedEvent event, String packagePrefix) {
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().startsWith(packagePrefix));
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "pinned for " + event.getDuration() + " (no stack trace)";
+        }
+        return "pinned for " + event.getDuration() + ":\n" + event.getStackTrace().getFrames().stream()
+                .map(VirtualThreadPinningTest::frame)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return "    at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
@@ -7,7 +7,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.lessThan;
 
@@ -82,4 +89,73 @@ public class ProductEdgeCaseTest extends BaseIntegrationTest {
                 .statusCode(HttpStatus.CREATED.value())
                 .time(lessThan(2000L)); // 響應時間應該 < 2 秒
     }
+
+
+    @Test
+    @DisplayName("Should return updated product after it was cached")
+    void shouldReturnUpdatedProductAfterCaching() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "Cached Product", "Description", "Manufacturer", 10);
+
+        given() // 第一次讀取會放入快取
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("name", equalTo("Cached Product"));
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body("""
+                    {
+                        "name": "Renamed Product"
+                    }
+                    """)
+                .when().put(PRODUCT_ENDPOINT + "/" + productId)
+                .then().statusCode(HttpStatus.OK.value());
+
+        given() // 更新後快取應已失效
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("name", equalTo("Renamed Product"));
+    }
+
+
+    @Test
+    @DisplayName("Should not oversell under concurrent quantity adjustments")
+    void shouldNotOversellUnderConcurrentAdjustments() throws Exception {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 10);
+
+        // 15 個並行的 -1，只有 10 個能成功，最終數量剛好為 0
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                results.add(executor.submit(() -> given()
+                        .header("Authorization", userData.authHeader())
+                        .contentType(ContentType.JSON)
+                        .body("{ \"delta\": -1 }")
+                        .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                        .then().extract().statusCode()));
+            }
+
+            int succeeded = 0;
+            for (Future<Integer> result : results) {
+                if (result.get() == HttpStatus.OK.value()) {
+                    succeeded++;
+                }
+            }
+            assertThat(succeeded, equalTo(10));
+        } finally {
+            executor.shutdown();
+        }
+
+        given()
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(0));
+    }
 }
@@ -0,0 +1,325 @@
+package com.chs.productservice.integration.product;
+
+import com.chs.productservice.integration.BaseIntegrationTest;
+import com.chs.productservice.integration.UserTestData;
+import com.chs.productservice.service.ImageRenditionService;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 背景縮圖：原圖與縮圖都存放在 mock 的 S3AsyncClient，檢查產生的尺寸、回應內容與佇列上限
+ */
+@DisplayName("Product API - Image Rendition Tests")
+@TestPropertySource(properties = {
+        "aws.s3.bucket-name=test-bucket",
+        "product.storage-cleanup.poll-interval=1h",
+        "product.image.renditions.threads=1",
+        "product.image.renditions.queue-capacity=1"
+})
+public class ProductImageRenditionTest extends BaseIntegrationTest {
+
+    @MockitoBean
+    private S3AsyncClient s3AsyncClient;
+
+    @MockitoBean
+    private S3Presigner s3Presigner;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 模擬的 bucket 內容
+    private final Map<String, PutObjectRequest> objects = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private UserTestData owner;
+    private String productId;
+
+    @BeforeEach
+    void createProduct() {
+        when(s3Presigner.presignGetObject(any(GetObjectPresignRequest.class)))
+                .thenAnswer(invocation -> presignedGet(invocation.getArgument(0)));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            contents.put(request.key(), readFully(invocation.getArgument(1)));
+            objects.put(request.key(), request);
+            return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+        });
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class))).thenAnswer(invocation -> {
+            String key = invocation.<GetObjectRequest>getArgument(0).key();
+            if (!contents.containsKey(key)) {
+                return CompletableFuture.failedFuture(NoSuchKeyException.builder().message("Not Found").build());
+            }
+            GetObjectResponse response = GetObjectResponse.builder().contentType(objects.get(key).contentType()).build();
+            return CompletableFuture.completedFuture(ResponseBytes.fromByteArray(response, contents.get(key)));
+        });
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+
+        owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        productId = createTestProduct(owner.authHeader(), generateUniqueSku(), "Product", "Description", "Manufacturer", 1);
+    }
+
+    @Test
+    @DisplayName("Should produce renditions in the background and delete them with the image")
+    void shouldProduceRenditionsInBackground() throws Exception {
+        Response uploaded = upload("wide.png", image(2000, 1000, "png"), "image/png");
+        String imageId = uploaded.path("imageId");
+        String s3Key = uploaded.path("s3BucketPath");
+
+        Response image = awaitRenditions(imageId);
+        assertThat(image.<List<Integer>>path("renditions.width"), contains(128, 512, 1024));
+        assertThat(image.<List<String>>path("renditions.s3BucketPath"),
+                contains(s3Key + "_128w", s3Key + "_512w", s3Key + "_1024w"));
+        assertThat(image.<String>path("renditions[0].downloadUrl"), containsString(s3Key + "_128w"));
+
+        // 依比例縮小，PNG 維持 PNG
+        assertThat(dimensions(s3Key + "_128w"), equalTo(List.of(128, 64)));
+        assertThat(dimensions(s3Key + "_512w"), equalTo(List.of(512, 256)));
+        assertThat(dimensions(s3Key + "_1024w"), equalTo(List.of(1024, 512)));
+        assertThat(objects.get(s3Key + "_512w").contentType(), equalTo("image/png"));
+
+        // 清單也列出縮圖
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("[0].renditions.width", contains(128, 512, 1024));
+
+        // 刪除圖片時原圖與縮圖一起刪除
+        given().header("Authorization", owner.authHeader())
+                .when().delete(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then().statusCode(HttpStatus.NO_CONTENT.value());
+
+        ArgumentCaptor<DeleteObjectsRequest> deletes = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3AsyncClient, timeout(5_000)).deleteObjects(deletes.capture());
+        assertThat(deletes.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList(),
+                containsInAnyOrder(s3Key, s3Key + "_128w", s3Key + "_512w", s3Key + "_1024w"));
+    }
+
+    @Test
+    @DisplayName("Should not upscale images smaller than a rendition width")
+    void shouldNotUpscaleSmallImages() throws Exception {
+        Response uploaded = upload("small.jpg", image(300, 200, "jpeg"), "image/jpeg");
+        String s3Key = uploaded.path("s3BucketPath");
+
+        Response image = awaitRenditions(uploaded.path("imageId"));
+        assertThat(image.<List<Integer>>path("renditions.width"), contains(128));
+        assertThat(dimensions(s3Key + "_128w"), equalTo(List.of(128, 85)));
+        assertThat(objects.get(s3Key + "_128w").contentType(), equalTo("image/jpeg"));
+    }
+
+    @Test
+    @DisplayName("Should change the image ETag once renditions are ready")
+    void shouldChangeETagWhenRenditionsAreReady() throws Exception {
+        Response uploaded = upload("front.png", image(600, 600, "png"), "image/png");
+        String imageId = uploaded.path("imageId");
+        awaitRenditions(imageId);
+
+        // 模擬縮圖尚未完成
+        String renditions = jdbcTemplate.queryForObject("SELECT renditions FROM images WHERE image_id = ?", String.class,
+                UUID.fromString(imageId));
+        jdbcTemplate.update("UPDATE images SET renditions = NULL WHERE image_id = ?", UUID.fromString(imageId));
+        String pendingETag = given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then().statusCode(HttpStatus.OK.value())
+                .extract().header("ETag");
+
+        jdbcTemplate.update("UPDATE images SET renditions = ? WHERE image_id = ?", renditions, UUID.fromString(imageId));
+        given().header("Authorization", owner.authHeader())
+                .header("If-None-Match", pendingETag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header("ETag", not(equalTo(pendingETag)));
+    }
+
+    @Test
+    @DisplayName("Should backfill images uploaded without renditions")
+    void shouldBackfillImagesWithoutRenditions() throws Exception {
+        Response uploaded = upload("old.png", image(800, 400, "png"), "image/png");
+        String imageId = uploaded.path("imageId");
+        awaitRenditions(imageId);
+
+        // 模擬功能上線前上傳的圖片
+        jdbcTemplate.update("UPDATE images SET renditions = NULL WHERE image_id = ?", UUID.fromString(imageId));
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then().statusCode(HttpStatus.OK.value()).body("renditions", equalTo(null));
+
+        assertThat(imageRenditionService.backfill(), greaterThan(0));
+
+        Response image = awaitRenditions(imageId);
+        assertThat(image.<List<Integer>>path("renditions.width"), contains(128, 512));
+    }
+
+    @Test
+    @DisplayName("Should not queue more images than threads + queue capacity")
+    void shouldRejectWhenQueueIsFull() {
+        CompletableFuture<ResponseBytes<GetObjectResponse>> blocked = new CompletableFuture<>();
+        when(s3AsyncClient.getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class))).thenAnswer(invocation ->
+                invocation.<GetObjectRequest>getArgument(0).key().equals("blocked")
+                        ? blocked
+                        : CompletableFuture.failedFuture(NoSuchKeyException.builder().message("Not Found").build()));
+
+        try {
+            // 1 條執行緒 + 佇列 1：第一張處理中、第二張排隊，之後的直接拒絕
+            int accepted = 0;
+            for (int i = 0; i < 3; i++) {
+                if (imageRenditionService.submit(UUID.randomUUID(), UUID.fromString(productId), "blocked")) {
+                    accepted++;
+                }
+            }
+            assertThat(accepted, lessThanOrEqualTo(2));
+            assertThat(imageRenditionService.submit(UUID.randomUUID(), UUID.fromString(productId), "blocked"), equalTo(false));
+        } finally {
+            blocked.completeExceptionally(NoSuchKeyException.builder().message("Not Found").build());
+        }
+    }
+
+    private Response upload(String fileName, byte[] content, String contentType) {
+        Response response = given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", fileName, content, contentType)
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image");
+        response.then().statusCode(HttpStatus.CREATED.value());
+        return response;
+    }
+
+    // 等待背景縮圖完成
+    private Response awaitRenditions(String imageId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Response response = given().header("Authorization", owner.authHeader())
+                    .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId);
+            response.then().statusCode(HttpStatus.OK.value());
+            if (response.path("renditions") != null) {
+                return response;
+            }
+            assertThat("timed out waiting for renditions of " + imageId, System.currentTimeMillis() < deadline, equalTo(true));
+            Thread.sleep(50);
+        }
+    }
+
+    private static PresignedGetObjectRequest presignedGet(GetObjectPresignRequest request) {
+        return PresignedGetObjectRequest.builder()
+                .expiration(Instant.now().plus(request.signatureDuration()))
+                .isBrowserExecutable(true)
+                .signedHeaders(Map.of("host", List.of(request.getObjectRequest().bucket() + ".s3.amazonaws.com")))
+                .httpRequest(SdkHttpFullRequest.builder()
+                        .method(SdkHttpMethod.GET)
+                        .protocol("https")
+                        .host(request.getObjectRequest().bucket() + ".s3.amazonaws.com")
+                        .encodedPath("/" + request.getObjectRequest().key())
+                        .build())
+                .build();
+    }
+
+    private List<Integer> dimensions(String s3Key) throws Exception {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(contents.get(s3Key)));
+        return List.of(image.getWidth(), image.getHeight());
+    }
+
+    private static byte[] image(int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    // 訂閱 request body 並收集所有 bytes
+    private static byte[] readFully(AsyncRequestBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        body.subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(30, TimeUnit.SECONDS);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,565 @@
+package com.chs.productservice.integration.product;
+
+import com.chs.productservice.integration.BaseIntegrationTest;
+import com.chs.productservice.entity.StorageCleanupTask;
+import com.chs.productservice.integration.UserTestData;
+import com.chs.productservice.repository.StorageCleanupTaskRepository;
+import com.chs.productservice.service.ImageService;
+import com.chs.productservice.service.S3Service;
+import com.chs.productservice.service.StorageCleanupService;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 與 S3 的互動：以 mock 的 S3AsyncClient 取代真正的 bucket，檢查送出的 request 內容
+ */
+@DisplayName("Product API - Image Storage Tests")
+@TestPropertySource(properties = {
+        "aws.s3.bucket-name=test-bucket",
+        "product.storage-cleanup.poll-interval=1h",
+        // 縮圖流程在 ProductImageRenditionTest 驗證，這裡只檢查原圖的 S3 呼叫
+        "product.image.renditions.enabled=false"
+})
+public class ProductImageStorageTest extends BaseIntegrationTest {
+
+    @MockitoBean
+    private S3AsyncClient s3AsyncClient;
+
+    @MockitoBean
+    private S3Presigner s3Presigner;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private S3Service s3Service;
+
+    @Autowired
+    private StorageCleanupService storageCleanupService;
+
+    @Autowired
+    private StorageCleanupTaskRepository storageCleanupTaskRepository;
+
+    private UserTestData owner;
+    private String productId;
+
+    @BeforeEach
+    void createProduct() {
+        when(s3Presigner.presignGetObject(any(GetObjectPresignRequest.class)))
+                .thenAnswer(invocation -> presignedGet(invocation.getArgument(0)));
+        owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        productId = createTestProduct(owner.authHeader(), generateUniqueSku(), "Product", "Description", "Manufacturer", 1);
+    }
+
+    @Test
+    @DisplayName("Should upload to S3 from a replayable file body")
+    void shouldUploadFromReplayableBody() {
+        byte[] content = new byte[3 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+
+        List<PutObjectRequest> requests = new ArrayList<>();
+        List<byte[]> attempts = new ArrayList<>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            AsyncRequestBody body = invocation.getArgument(1);
+            // 模擬 SDK 重試：每次訂閱都要從頭讀到完整內容
+            attempts.add(readFully(body));
+            attempts.add(readFully(body));
+            assertThat(body.contentLength().orElse(-1L), equalTo((long) content.length));
+            return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+        });
+
+        String s3Key = given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", "large.png", content, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.CREATED.value())
+                .extract().path("s3BucketPath");
+
+        assertThat(requests, hasSize(1));
+        assertThat(requests.get(0).bucket(), equalTo("test-bucket"));
+        assertThat(requests.get(0).key(), equalTo(s3Key));
+        assertThat(requests.get(0).contentLength(), equalTo((long) content.length));
+        assertThat(attempts, hasSize(2));
+        for (byte[] attempt : attempts) {
+            assertThat(attempt, equalTo(content));
+        }
+    }
+
+    @Test
+    @DisplayName("Should finish the upload after S3 completes, without holding the request thread")
+    void shouldCompleteUploadAsynchronously() throws Exception {
+        CompletableFuture<PutObjectResponse> pending = new CompletableFuture<>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(pending);
+
+        CompletableFuture<String> upload = CompletableFuture.supplyAsync(() -> given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", "slow.png", new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.CREATED.value())
+                .extract().path("fileName"));
+
+        // S3 尚未完成：請求仍在等待，圖片還沒寫入
+        Thread.sleep(500);
+        assertThat(upload.isDone(), equalTo(false));
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.OK.value()).body("$", hasSize(0));
+
+        pending.complete(PutObjectResponse.builder().build());
+
+        assertThat(upload.get(30, TimeUnit.SECONDS), equalTo("slow.png"));
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.OK.value()).body("fileName", contains("slow.png"));
+    }
+
+    @Test
+    @DisplayName("Should not save the image when the S3 upload fails")
+    void shouldNotSaveImageWhenUploadFails() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(S3Exception.builder().message("Slow Down").statusCode(503).build()));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", "front.png", new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.INTERNAL_SERVER_ERROR.value());
+
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.OK.value()).body("$", hasSize(0));
+    }
+
+    @Test
+    @DisplayName("Should delete all images of a product with one DeleteObjects request")
+    void shouldDeleteProductImagesInOneRequest() throws Exception {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        List<DeleteObjectsRequest> deletes = new CopyOnWriteArrayList<>();
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            deletes.add(request);
+            // 其中一個 key 失敗，不影響產品刪除
+            String failedKey = request.delete().objects().get(0).key();
+            return CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                    .errors(S3Error.builder().key(failedKey).code("AccessDenied").message("Access Denied").build())
+                    .build());
+        });
+
+        List<String> s3Keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            s3Keys.add(given()
+                    .header("Authorization", owner.authHeader())
+                    .multiPart("file", "image-" + i + ".png", new byte[]{1, 2, 3}, "image/png")
+                    .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                    .then()
+                    .statusCode(HttpStatus.CREATED.value())
+                    .extract().path("s3BucketPath"));
+        }
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .when().delete(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.NO_CONTENT.value());
+
+        verify(s3AsyncClient, timeout(5_000)).deleteObjects(any(DeleteObjectsRequest.class));
+        verify(s3AsyncClient, never()).deleteObject(any(DeleteObjectRequest.class));
+        assertThat(deletes, hasSize(1));
+        assertThat(deletes.get(0).bucket(), equalTo("test-bucket"));
+        assertThat(deletes.get(0).delete().objects().stream().map(ObjectIdentifier::key).toList(),
+                containsInAnyOrder(s3Keys.toArray()));
+
+        // 失敗的 key 留在 outbox 等待重試，其餘已移除
+        String failedKey = deletes.get(0).delete().objects().get(0).key();
+        StorageCleanupTask failed = awaitTask(failedKey, task -> task.getAttempts() == 1);
+        assertThat(failed.getLastError(), equalTo("AccessDenied: Access Denied"));
+        for (String s3Key : s3Keys) {
+            if (!s3Key.equals(failedKey)) {
+                assertThat(findTask(s3Key).isPresent(), equalTo(false));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should return before S3 and retry failed deletes from the outbox with backoff")
+    void shouldRetryFailedDeletesFromOutbox() throws Exception {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        CompletableFuture<DeleteObjectsResponse> pending = new CompletableFuture<>();
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenReturn(pending);
+
+        Response upload = given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", "front.png", new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image");
+        String imageId = upload.path("imageId");
+        String s3Key = upload.path("s3BucketPath");
+
+        // S3 尚未回應，刪除請求已完成
+        given()
+                .header("Authorization", owner.authHeader())
+                .when().delete(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then()
+                .statusCode(HttpStatus.NO_CONTENT.value());
+        verify(s3AsyncClient, timeout(5_000)).deleteObjects(any(DeleteObjectsRequest.class));
+        assertThat(findTask(s3Key).isPresent(), equalTo(true));
+
+        // 整批失敗：排定稍後重試
+        LocalDateTime failedAt = LocalDateTime.now();
+        pending.completeExceptionally(S3Exception.builder().message("Slow Down").statusCode(503).build());
+        StorageCleanupTask failed = awaitTask(s3Key, task -> task.getAttempts() == 1);
+        assertThat(failed.getLastError(), containsString("Slow Down"));
+        assertThat(failed.getNextAttemptAt(), greaterThan(failedAt.plusSeconds(25)));
+        assertThat(failed.getLockedUntil(), equalTo(null));
+
+        // 尚未到期的任務不會被處理
+        storageCleanupService.poll();
+        verify(s3AsyncClient, times(1)).deleteObjects(any(DeleteObjectsRequest.class));
+
+        // 到期後重試成功，任務移除
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+        failed.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        storageCleanupTaskRepository.save(failed);
+        storageCleanupService.poll();
+
+        verify(s3AsyncClient, times(2)).deleteObjects(any(DeleteObjectsRequest.class));
+        assertThat(findTask(s3Key).isPresent(), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("Should split bulk deletes into 1000-key requests and report failures per key")
+    void shouldSplitBulkDeletes() throws Exception {
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            if (request.delete().objects().get(0).key().equals("key-1000")) {
+                return CompletableFuture.failedFuture(S3Exception.builder().message("Slow Down").statusCode(503).build());
+            }
+            return CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                    .errors(S3Error.builder().key("key-7").code("AccessDenied").message("Access Denied").build())
+                    .build());
+        });
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            keys.add("key-" + i);
+        }
+
+        Map<String, String> failures = s3Service.deleteFiles(keys).get(30, TimeUnit.SECONDS);
+
+        ArgumentCaptor<DeleteObjectsRequest> requests = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3AsyncClient, times(3)).deleteObjects(requests.capture());
+        assertThat(requests.getAllValues().stream().map(request -> request.delete().objects().size()).toList(),
+                containsInAnyOrder(1_000, 1_000, 500));
+        // 第二批整批失敗（1000 個 key）+ 其他兩批各回報 key-7 失敗
+        assertThat(failures.size(), equalTo(1_001));
+        assertThat(failures.get("key-7"), equalTo("AccessDenied: Access Denied"));
+        assertThat(failures.containsKey("key-1999"), equalTo(true));
+        assertThat(failures.containsKey("key-2000"), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("Should upload through a presigned URL and show the image only after completion")
+    void shouldUploadThroughPresignedUrl() {
+        ArgumentCaptor<PutObjectPresignRequest> presignRequests = ArgumentCaptor.forClass(PutObjectPresignRequest.class);
+        when(s3Presigner.presignPutObject(presignRequests.capture())).thenAnswer(invocation -> presignedPut(invocation.getArgument(0)));
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().message("Not Found").build()))
+                .thenReturn(CompletableFuture.completedFuture(HeadObjectResponse.builder().contentLength(1024L).build()));
+
+        Response uploadUrl = given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"front.png\", \"contentType\": \"image/png\", \"contentLength\": 1024 }")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/upload-url");
+        uploadUrl.then()
+                .statusCode(HttpStatus.CREATED.value())
+                .body("uploadHeaders", hasEntry("content-type", "image/png"));
+        String imageId = uploadUrl.path("imageId");
+        String s3Key = uploadUrl.path("s3BucketPath");
+        assertThat(uploadUrl.<String>path("uploadUrl"), equalTo("https://test-bucket.s3.amazonaws.com/" + s3Key));
+
+        // 簽章涵蓋 bucket、key、類型與大小
+        PutObjectPresignRequest presignRequest = presignRequests.getValue();
+        assertThat(presignRequest.signatureDuration(), equalTo(Duration.ofMinutes(15)));
+        assertThat(presignRequest.putObjectRequest().bucket(), equalTo("test-bucket"));
+        assertThat(presignRequest.putObjectRequest().key(), equalTo(s3Key));
+        assertThat(presignRequest.putObjectRequest().contentType(), equalTo("image/png"));
+        assertThat(presignRequest.putObjectRequest().contentLength(), equalTo(1024L));
+
+        // 完成前不可見
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.OK.value()).body("$", hasSize(0));
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId)
+                .then().statusCode(HttpStatus.NOT_FOUND.value());
+
+        // S3 尚未收到檔案
+        given().header("Authorization", owner.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId + "/complete")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("not been received"));
+
+        given().header("Authorization", owner.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId + "/complete")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("imageId", equalTo(imageId))
+                .body("s3BucketPath", equalTo(s3Key));
+
+        // 重複完成不再呼叫 S3
+        given().header("Authorization", owner.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId + "/complete")
+                .then().statusCode(HttpStatus.OK.value());
+        verify(s3AsyncClient, times(2)).headObject(any(HeadObjectRequest.class));
+        verify(s3AsyncClient, never()).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+
+        given().header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.OK.value()).body("fileName", contains("front.png"));
+    }
+
+    @Test
+    @DisplayName("Should sweep expired pending uploads and delete their objects")
+    void shouldSweepExpiredPendingUploads() throws Exception {
+        when(s3Presigner.presignPutObject(any(PutObjectPresignRequest.class))).thenAnswer(invocation -> presignedPut(invocation.getArgument(0)));
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+
+        Response expired = requestUploadUrl("expired.png");
+        Response recent = requestUploadUrl("recent.png");
+        String expiredKey = expired.path("s3BucketPath");
+        jdbcTemplate.update("UPDATE images SET date_created = ? WHERE image_id = ?",
+                LocalDateTime.now().minusHours(2), UUID.fromString(expired.path("imageId")));
+
+        imageService.sweepPendingUploads();
+
+        given().header("Authorization", owner.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + expired.path("imageId") + "/complete")
+                .then().statusCode(HttpStatus.NOT_FOUND.value());
+        ArgumentCaptor<DeleteObjectsRequest> deletes = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3AsyncClient, timeout(5_000)).deleteObjects(deletes.capture());
+        assertThat(deletes.getValue().delete().objects().stream().map(ObjectIdentifier::key).toList(), contains(expiredKey));
+
+        // 未逾時的上傳保留
+        Integer remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM images WHERE image_id = ?",
+                Integer.class, UUID.fromString(recent.path("imageId")));
+        assertThat(remaining, equalTo(1));
+    }
+
+    @Test
+    @DisplayName("Should return presigned download URLs, signing each key once per window")
+    void shouldReuseCachedDownloadUrls() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        List<GetObjectPresignRequest> presignRequests = new CopyOnWriteArrayList<>();
+        when(s3Presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenAnswer(invocation -> {
+            presignRequests.add(invocation.getArgument(0));
+            return presignedGet(invocation.getArgument(0));
+        });
+
+        List<String> s3Keys = new ArrayList<>();
+        for (String fileName : List.of("front.png", "back.png")) {
+            Response upload = given()
+                    .header("Authorization", owner.authHeader())
+                    .multiPart("file", fileName, new byte[]{1, 2, 3}, "image/png")
+                    .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image");
+            upload.then().statusCode(HttpStatus.CREATED.value());
+            String s3Key = upload.path("s3BucketPath");
+            assertThat(upload.<String>path("downloadUrl"), equalTo("https://test-bucket.s3.amazonaws.com/" + s3Key));
+            s3Keys.add(s3Key);
+        }
+
+        String eTag = null;
+        for (int i = 0; i < 3; i++) {
+            Response list = given().header("Authorization", owner.authHeader())
+                    .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image");
+            list.then()
+                    .statusCode(HttpStatus.OK.value())
+                    .body("downloadUrl", containsInAnyOrder(s3Keys.stream()
+                            .map(key -> "https://test-bucket.s3.amazonaws.com/" + key).toArray()));
+            eTag = list.header("ETag");
+        }
+
+        // 每個 key 只簽一次：上傳時簽出的 URL 在之後的讀取中重複使用
+        assertThat(presignRequests, hasSize(2));
+        for (GetObjectPresignRequest request : presignRequests) {
+            assertThat(request.getObjectRequest().bucket(), equalTo("test-bucket"));
+            assertThat(request.signatureDuration(), greaterThan(Duration.ofMinutes(10).minusSeconds(5)));
+            assertThat(request.signatureDuration(), lessThanOrEqualTo(Duration.ofHours(1)));
+        }
+
+        // ETag 含 URL 的失效時間，不載入清單的比對也得到同樣的結果
+        given().header("Authorization", owner.authHeader())
+                .header("If-None-Match", eTag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then().statusCode(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    private Response requestUploadUrl(String fileName) {
+        Response response = given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"" + fileName + "\", \"contentType\": \"image/png\", \"contentLength\": 3 }")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/upload-url");
+        response.then().statusCode(HttpStatus.CREATED.value());
+        return response;
+    }
+
+    private static PresignedGetObjectRequest presignedGet(GetObjectPresignRequest request) {
+        return PresignedGetObjectRequest.builder()
+                .expiration(Instant.now().plus(request.signatureDuration()))
+                .isBrowserExecutable(true)
+                .signedHeaders(Map.of("host", List.of(request.getObjectRequest().bucket() + ".s3.amazonaws.com")))
+                .httpRequest(SdkHttpFullRequest.builder()
+                        .method(SdkHttpMethod.GET)
+                        .protocol("https")
+                        .host(request.getObjectRequest().bucket() + ".s3.amazonaws.com")
+                        .encodedPath("/" + request.getObjectRequest().key())
+                        .build())
+                .build();
+    }
+
+    // 與 S3Presigner 產生的結果相同的結構，URL 以 bucket 與 key 組成
+    private static PresignedPutObjectRequest presignedPut(PutObjectPresignRequest request) {
+        PutObjectRequest put = request.putObjectRequest();
+        return PresignedPutObjectRequest.builder()
+                .expiration(Instant.now().plus(request.signatureDuration()))
+                .isBrowserExecutable(false)
+                .signedHeaders(Map.of(
+                        "host", List.of(put.bucket() + ".s3.amazonaws.com"),
+                        "content-type", List.of(put.contentType()),
+                        "content-length", List.of(String.valueOf(put.contentLength()))))
+                .httpRequest(SdkHttpFullRequest.builder()
+                        .method(SdkHttpMethod.PUT)
+                        .protocol("https")
+                        .host(put.bucket() + ".s3.amazonaws.com")
+                        .encodedPath("/" + put.key())
+                        .build())
+                .build();
+    }
+
+    private Optional<StorageCleanupTask> findTask(String s3Key) {
+        return storageCleanupTaskRepository.findAll().stream()
+                .filter(task -> task.getS3Key().equals(s3Key))
+                .findFirst();
+    }
+
+    // 等待背景 worker 更新 outbox
+    private StorageCleanupTask awaitTask(String s3Key, Predicate<StorageCleanupTask> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            Optional<StorageCleanupTask> task = findTask(s3Key).filter(condition);
+            if (task.isPresent()) {
+                return task.get();
+            }
+            assertThat("timed out waiting for outbox task " + s3Key, System.currentTimeMillis() < deadline, equalTo(true));
+            Thread.sleep(50);
+        }
+    }
+
+    // 訂閱 request body 並收集所有 bytes
+    private static byte[] readFully(AsyncRequestBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        body.subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(30, TimeUnit.SECONDS);
+        return out.toByteArray();
+    }
+}
@@ -7,7 +7,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 
+import java.util.UUID;
+
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
 
 @DisplayName("Product API - Negative Test Cases")
 public class ProductNegativeTest extends BaseIntegrationTest {
@@ -81,4 +85,220 @@ public class ProductNegativeTest extends BaseIntegrationTest {
                 .when().put(PRODUCT_ENDPOINT + "/" + productId)
                 .then().statusCode(HttpStatus.NOT_FOUND.value());
     }
+
+
+    @Test
+    @DisplayName("Should reject product listing with invalid limit or cursor")
+    void shouldRejectInvalidPagination() {
+        given()
+                .queryParam("limit", 0)
+                .when().get(PRODUCT_ENDPOINT)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .queryParam("limit", 1000)
+                .when().get(PRODUCT_ENDPOINT)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .queryParam("cursor", "not-a-cursor")
+                .when().get(PRODUCT_ENDPOINT)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .queryParam("sort", "name")
+                .when().get(PRODUCT_ENDPOINT)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .queryParam("minQuantity", -1)
+                .when().get(PRODUCT_ENDPOINT)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+
+    @Test
+    @DisplayName("Should reject search without query")
+    void shouldRejectSearchWithoutQuery() {
+        given()
+                .when().get(PRODUCT_ENDPOINT + "/search")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .queryParam("q", " ")
+                .when().get(PRODUCT_ENDPOINT + "/search")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate SKU on create and update")
+    void shouldRejectDuplicateSku() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        createTestProduct(userData.authHeader(), sku + "-1", "Product 1", "Description", "Manufacturer", 1);
+        String secondId = createTestProduct(userData.authHeader(), sku + "-2", "Product 2", "Description", "Manufacturer", 1);
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body(String.format("""
+                    {
+                        "sku": "%s",
+                        "name": "Duplicate",
+                        "manufacturer": "Manufacturer",
+                        "quantity": 1
+                    }
+                    """, sku + "-1"))
+                .when().post(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("already exists"));
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body(String.format("""
+                    {
+                        "sku": "%s"
+                    }
+                    """, sku + "-1"))
+                .when().put(PRODUCT_ENDPOINT + "/" + secondId)
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("already exists"));
+    }
+
+
+    @Test
+    @DisplayName("Should reject quantity adjustment below zero or on other user's product")
+    void shouldRejectInvalidQuantityAdjustment() {
+        UserTestData owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "User", "One");
+        UserTestData otherUser = createUserAndGetData(generateUniqueEmail(), "Pass456!", "User", "Two");
+        String productId = createTestProduct(owner.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 3);
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": -4 }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("Insufficient quantity"));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{}")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .header("Authorization", otherUser.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": 1 }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then().statusCode(HttpStatus.NOT_FOUND.value());
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": 1 }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + UUID.randomUUID() + "/quantity")
+                .then().statusCode(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    @DisplayName("Should reject quantity adjustments that overflow the quantity")
+    void shouldRejectOverflowingQuantityAdjustment() {
+        UserTestData owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "User", "One");
+        String productId = createTestProduct(owner.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 3);
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": " + Integer.MAX_VALUE + " }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("out of range"));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": " + Integer.MIN_VALUE + " }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("Insufficient quantity"));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(3));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid presigned upload requests and completing another user's upload")
+    void shouldRejectInvalidUploadUrlRequests() {
+        UserTestData owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "User", "One");
+        UserTestData otherUser = createUserAndGetData(generateUniqueEmail(), "Pass456!", "User", "Two");
+        String productId = createTestProduct(owner.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 3);
+        String uploadUrlEndpoint = PRODUCT_ENDPOINT + "/" + productId + "/image/upload-url";
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"anim.gif\", \"contentType\": \"image/gif\", \"contentLength\": 100 }")
+                .when().post(uploadUrlEndpoint)
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("Invalid file type"));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"huge.png\", \"contentType\": \"image/png\", \"contentLength\": 6000000 }")
+                .when().post(uploadUrlEndpoint)
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .body("error", containsString("File size exceeds"));
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"front.png\" }")
+                .when().post(uploadUrlEndpoint)
+                .then().statusCode(HttpStatus.BAD_REQUEST.value());
+
+        given()
+                .header("Authorization", otherUser.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"front.png\", \"contentType\": \"image/png\", \"contentLength\": 100 }")
+                .when().post(uploadUrlEndpoint)
+                .then().statusCode(HttpStatus.FORBIDDEN.value());
+
+        String imageId = given()
+                .header("Authorization", owner.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"fileName\": \"front.png\", \"contentType\": \"image/png\", \"contentLength\": 100 }")
+                .when().post(uploadUrlEndpoint)
+                .then()
+                .statusCode(HttpStatus.CREATED.value())
+                .extract().path("imageId");
+
+        given()
+                .header("Authorization", otherUser.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + imageId + "/complete")
+                .then().statusCode(HttpStatus.FORBIDDEN.value());
+
+        given()
+                .header("Authorization", owner.authHeader())
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image/" + UUID.randomUUID() + "/complete")
+                .then().statusCode(HttpStatus.NOT_FOUND.value());
+    }
 }
@@ -1,15 +1,38 @@
 package com.chs.productservice.integration.product;
 
+import com.chs.productservice.dto.ProductPageResponse;
+import com.chs.productservice.dto.ProductResponse;
 import com.chs.productservice.integration.BaseIntegrationTest;
 import com.chs.productservice.integration.UserTestData;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 @DisplayName("Product API - Positive Test Cases")
 public class ProductPositiveTest extends BaseIntegrationTest {
@@ -88,4 +111,527 @@ public class ProductPositiveTest extends BaseIntegrationTest {
                 .body("name", equalTo("Updated Product"))
                 .body("quantity", equalTo(20));
     }
+
+
+    @Test
+    @DisplayName("Should page through user products with cursor")
+    void shouldPageThroughUserProductsWithCursor() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        String firstId = createTestProduct(userData.authHeader(), sku + "-1", "Product 1", "Description", "Manufacturer", 1);
+        String secondId = createTestProduct(userData.authHeader(), sku + "-2", "Product 2", "Description", "Manufacturer", 2);
+        String thirdId = createTestProduct(userData.authHeader(), sku + "-3", "Product 3", "Description", "Manufacturer", 3);
+
+        String nextCursor = given()
+                .header("Authorization", userData.authHeader())
+                .queryParam("limit", 2)
+                .when().get(PRODUCT_ENDPOINT + "/user")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", contains(firstId, secondId))
+                .body("nextCursor", notNullValue())
+                .extract()
+                .path("nextCursor");
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .queryParam("limit", 2)
+                .queryParam("cursor", nextCursor)
+                .when().get(PRODUCT_ENDPOINT + "/user")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", contains(thirdId))
+                .body("nextCursor", nullValue());
+    }
+
+
+    @Test
+    @DisplayName("Should export products as NDJSON stream")
+    void shouldExportProductsAsNdjson() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        String productId = createTestProduct(userData.authHeader(), sku, "Export Product", "Description", "Manufacturer", 7);
+
+        String body = given()
+                .when().get(PRODUCT_ENDPOINT + "/export")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/x-ndjson")
+                .extract()
+                .asString();
+
+        String exportedLine = body.lines()
+                .filter(line -> line.contains(productId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(exportedLine, containsString("\"sku\":\"" + sku + "\""));
+    }
+
+
+    @Test
+    @DisplayName("Should return 304 when product ETag still matches")
+    void shouldReturnNotModifiedForMatchingETag() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "ETag Product", "Description", "Manufacturer", 5);
+
+        String eTag = given()
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header("ETag", notNullValue())
+                .extract()
+                .header("ETag");
+
+        given()
+                .header("If-None-Match", eTag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.NOT_MODIFIED.value())
+                .header("ETag", equalTo(eTag));
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body("""
+                    {
+                        "quantity": 6
+                    }
+                    """)
+                .when().put(PRODUCT_ENDPOINT + "/" + productId)
+                .then().statusCode(HttpStatus.OK.value());
+
+        given() // 產品更新後舊的 ETag 不再相符
+                .header("If-None-Match", eTag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(6));
+    }
+
+
+    @Test
+    @DisplayName("Should search products by keyword and partial SKU")
+    void shouldSearchProducts() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        String productId = createTestProduct(userData.authHeader(), sku, "Searchable Gadget", "Description", "Acme", 3);
+
+        given()
+                .queryParam("q", "searchable")
+                .when().get(PRODUCT_ENDPOINT + "/search")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", hasItem(productId));
+
+        given()
+                .queryParam("q", sku.substring(3))
+                .when().get(PRODUCT_ENDPOINT + "/search")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", contains(productId));
+    }
+
+
+    @Test
+    @DisplayName("Should filter products by manufacturer and quantity and sort newest first")
+    void shouldFilterAndSortProducts() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String manufacturer = "Maker" + System.currentTimeMillis();
+        String sku = generateUniqueSku();
+        String outOfStockId = createTestProduct(userData.authHeader(), sku + "-1", "Old Product", "Description", manufacturer, 0);
+        String inStockId = createTestProduct(userData.authHeader(), sku + "-2", "In Stock", "Description", manufacturer, 5);
+        String newerOutOfStockId = createTestProduct(userData.authHeader(), sku + "-3", "New Product", "Description", manufacturer, 0);
+
+        given()
+                .queryParam("manufacturer", manufacturer)
+                .queryParam("quantity", 0)
+                .queryParam("sort", "-dateAdded")
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", contains(newerOutOfStockId, outOfStockId));
+
+        given()
+                .queryParam("manufacturer", manufacturer)
+                .queryParam("minQuantity", 1)
+                .queryParam("ownerId", userData.userId())
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.id", contains(inStockId));
+    }
+
+
+    @Test
+    @DisplayName("Should create products in batch and report each item")
+    void shouldCreateProductsInBatch() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        createTestProduct(userData.authHeader(), sku + "-existing", "Existing", "Description", "Manufacturer", 1);
+
+        String batchPayload = String.format("""
+            [
+                { "sku": "%1$s-1", "name": "Batch 1", "manufacturer": "Maker", "quantity": 1 },
+                { "sku": "%1$s-2", "name": "Batch 2", "manufacturer": "Maker", "quantity": 2 },
+                { "sku": "%1$s-existing", "name": "Existing", "manufacturer": "Maker", "quantity": 3 },
+                { "sku": "%1$s-1", "name": "Repeated", "manufacturer": "Maker", "quantity": 4 },
+                { "sku": "%1$s-3", "manufacturer": "Maker", "quantity": 5 }
+            ]
+            """, sku);
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body(batchPayload)
+                .when().post(PRODUCT_ENDPOINT + "/batch")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("created", equalTo(2))
+                .body("failed", equalTo(3))
+                .body("results.status", contains("CREATED", "CREATED", "FAILED", "FAILED", "FAILED"))
+                .body("results[0].product.id", notNullValue())
+                .body("results[2].error", containsString("already exists"))
+                .body("results[3].error", containsString("Duplicate SKU"))
+                .body("results[4].error", containsString("Product name is required"));
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .when().get(PRODUCT_ENDPOINT + "/user")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.sku", containsInAnyOrder(sku + "-existing", sku + "-1", sku + "-2"));
+    }
+
+
+    @Test
+    @DisplayName("Should adjust product quantity by a signed delta")
+    void shouldAdjustQuantity() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 10);
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": 5 }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("id", equalTo(productId))
+                .body("quantity", equalTo(15));
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"delta\": -15 }")
+                .when().patch(PRODUCT_ENDPOINT + "/" + productId + "/quantity")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(0));
+
+        given()
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(0));
+    }
+
+
+    @Test
+    @DisplayName("Should apply batched inventory adjustments and report each line")
+    void shouldAdjustInventoryInBatch() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        String firstId = createTestProduct(userData.authHeader(), sku + "-1", "Product 1", "Description", "Manufacturer", 10);
+        String secondId = createTestProduct(userData.authHeader(), sku + "-2", "Product 2", "Description", "Manufacturer", 0);
+
+        String adjustPayload = String.format("""
+            [
+                { "productId": "%1$s", "delta": -2 },
+                { "sku": "%2$s-2", "delta": 3 },
+                { "sku": "%2$s-1", "delta": -1 },
+                { "productId": "%1$s", "delta": -100 },
+                { "sku": "%2$s-missing", "delta": 1 },
+                { "productId": "%1$s", "sku": "%2$s-1", "delta": 1 }
+            ]
+            """, firstId, sku);
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body(adjustPayload)
+                .when().post(PRODUCT_ENDPOINT + "/inventory/adjust")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("applied", equalTo(3))
+                .body("failed", equalTo(3))
+                .body("results.status", contains("APPLIED", "APPLIED", "APPLIED", "FAILED", "FAILED", "FAILED"))
+                .body("results.quantity", contains(8, 3, 7, null, null, null))
+                .body("results[1].productId", equalTo(secondId))
+                .body("results[3].error", containsString("Insufficient quantity"))
+                .body("results[4].error", equalTo("Product not found"));
+
+        given()
+                .when().get(PRODUCT_ENDPOINT + "/" + firstId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("quantity", equalTo(7));
+    }
+
+
+    @Test
+    @DisplayName("Should return products as CBOR or Smile when requested in Accept")
+    void shouldNegotiateBinaryFormats() throws Exception {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "Binary Product", "Description", "Manufacturer", 4);
+
+        byte[] cbor = given()
+                .accept("application/cbor")
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/cbor")
+                .extract().asByteArray();
+        // 二進位格式中 UUID 以 binary 編碼，需以 DTO 解碼
+        ProductResponse cborProduct = CBORMapper.builder().findAndAddModules().build()
+                .readValue(cbor, ProductResponse.class);
+        assertThat(cborProduct.getId().toString(), equalTo(productId));
+        assertThat(cborProduct.getQuantity(), equalTo(4));
+
+        byte[] smile = given()
+                .accept("application/x-jackson-smile")
+                .queryParam("ownerId", userData.userId())
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/x-jackson-smile")
+                .extract().asByteArray();
+        ProductPageResponse smilePage = SmileMapper.builder().findAndAddModules().build()
+                .readValue(smile, ProductPageResponse.class);
+        assertThat(smilePage.getProducts().get(0).getName(), equalTo("Binary Product"));
+    }
+
+    @Test
+    @DisplayName("Should give each representation its own ETag and vary by Accept")
+    void shouldKeepETagsPerRepresentation() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                "Variant Product", "Description", "Manufacturer", 4);
+
+        String jsonETag = given()
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header("Vary", containsString("Accept"))
+                .extract().header("ETag");
+        String cborETag = given()
+                .accept("application/cbor")
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .header("Vary", containsString("Accept"))
+                .extract().header("ETag");
+        assertThat(cborETag, not(equalTo(jsonETag)));
+
+        // JSON 的 ETag 不能讓 CBOR 請求得到 304，反之亦然
+        given()
+                .accept("application/cbor")
+                .header("If-None-Match", jsonETag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType("application/cbor");
+        given()
+                .header("If-None-Match", cborETag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .contentType(ContentType.JSON);
+
+        given()
+                .accept("application/cbor")
+                .header("If-None-Match", cborETag)
+                .when().get(PRODUCT_ENDPOINT + "/" + productId)
+                .then()
+                .statusCode(HttpStatus.NOT_MODIFIED.value())
+                .header("Vary", containsString("Accept"));
+    }
+
+
+    @Test
+    @DisplayName("Should embed images in product reads with include=images")
+    void shouldIncludeImages() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        String sku = generateUniqueSku();
+        String withImageId = createTestProduct(userData.authHeader(), sku + "-1", "With Image", "Description", "Manufacturer", 1);
+        createTestProduct(userData.authHeader(), sku + "-2", "Without Image", "Description", "Manufacturer", 1);
+        uploadTestImage(userData.authHeader(), withImageId, "front.png");
+
+        given()
+                .queryParam("ownerId", userData.userId())
+                .queryParam("include", "images")
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products.name", contains("With Image", "Without Image"))
+                .body("products[0].images.fileName", contains("front.png"))
+                .body("products[1].images", empty());
+
+        given()
+                .queryParam("ownerId", userData.userId())
+                .when().get(PRODUCT_ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("products[0]", not(hasKey("images")));
+
+        String eTag = given()
+                .queryParam("include", "images")
+                .when().get(PRODUCT_ENDPOINT + "/" + withImageId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("images.fileName", contains("front.png"))
+                .extract().header("ETag");
+
+        // 新增圖片後，附帶圖片的 ETag 必須改變
+        uploadTestImage(userData.authHeader(), withImageId, "back.png");
+
+        given()
+                .queryParam("include", "images")
+                .header("If-None-Match", eTag)
+                .when().get(PRODUCT_ENDPOINT + "/" + withImageId)
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("images.fileName", contains("front.png", "back.png"));
+    }
+
+    @Test
+    @DisplayName("Should report created, updated and deleted products in the change feed")
+    void shouldReportChangesSinceCursor() {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+
+        // 先讀到最新的 cursor，之後只會看到本測試造成的變更
+        String since = drainChanges(null);
+
+        String sku = generateUniqueSku();
+        String keptId = createTestProduct(userData.authHeader(), sku + "-1", "Kept", "Description", "Manufacturer", 1);
+        String deletedId = createTestProduct(userData.authHeader(), sku + "-2", "Deleted", "Description", "Manufacturer", 1);
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .contentType(ContentType.JSON)
+                .body("{ \"name\": \"Kept Updated\" }")
+                .when().put(PRODUCT_ENDPOINT + "/" + keptId)
+                .then().statusCode(HttpStatus.OK.value());
+
+        given()
+                .header("Authorization", userData.authHeader())
+                .when().delete(PRODUCT_ENDPOINT + "/" + deletedId)
+                .then().statusCode(HttpStatus.NO_CONTENT.value());
+
+        String next = given()
+                .queryParam("since", since)
+                .when().get(PRODUCT_ENDPOINT + "/changes")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("changes.productId", contains(keptId, deletedId))
+                .body("changes.type", contains("UPSERT", "DELETE"))
+                .body("changes[0].product.name", equalTo("Kept Updated"))
+                .body("changes[1].product", nullValue())
+                .body("hasMore", equalTo(false))
+                .extract().path("nextCursor");
+
+        given()
+                .queryParam("since", next)
+                .when().get(PRODUCT_ENDPOINT + "/changes")
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("changes", empty())
+                .body("nextCursor", equalTo(next));
+    }
+
+    @Test
+    @DisplayName("Should push committed product and image changes to stream subscribers")
+    void shouldStreamChanges() throws Exception {
+        UserTestData userData = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        HttpClient client = HttpClient.newHttpClient();
+        CompletableFuture<HttpResponse<Void>> stream = client.sendAsync(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + PRODUCT_ENDPOINT + "/stream"))
+                        .header("Accept", "text/event-stream")
+                        .build(),
+                HttpResponse.BodyHandlers.fromLineSubscriber(new LineCollector(lines)));
+
+        try {
+            // 連線後第一個事件是 connected，帶有 resume cursor
+            assertThat(awaitLine(lines, "event:"), equalTo("event:connected"));
+
+            String productId = createTestProduct(userData.authHeader(), generateUniqueSku(),
+                    "Streamed", "Description", "Manufacturer", 1);
+            uploadTestImage(userData.authHeader(), productId, "front.png");
+
+            assertThat(awaitLine(lines, "event:"), equalTo("event:PRODUCT_CREATED"));
+            assertThat(awaitLine(lines, "data:"), containsString(productId));
+            assertThat(awaitLine(lines, "event:"), equalTo("event:IMAGE_ADDED"));
+            assertThat(awaitLine(lines, "data:"), containsString(productId));
+        } finally {
+            stream.cancel(true);
+        }
+    }
+
+    private String awaitLine(BlockingQueue<String> lines, String prefix) throws InterruptedException {
+        while (true) {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            assertThat("Timed out waiting for " + prefix, line, notNullValue());
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+    }
+
+    private record LineCollector(BlockingQueue<String> lines) implements Flow.Subscriber<String> {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private String drainChanges(String since) {
+        while (true) {
+            var response = given()
+                    .queryParam("since", since == null ? "" : since)
+                    .when().get(PRODUCT_ENDPOINT + "/changes")
+                    .then()
+                    .statusCode(HttpStatus.OK.value())
+                    .extract();
+            since = response.path("nextCursor");
+            if (!response.<Boolean>path("hasMore")) {
+                return since;
+            }
+        }
+    }
+
+    private void uploadTestImage(String authHeader, String productId, String fileName) {
+        given()
+                .header("Authorization", authHeader)
+                .multiPart("file", fileName, new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.CREATED.value());
+    }
 }
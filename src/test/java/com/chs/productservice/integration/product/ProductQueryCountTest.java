@@ -0,0 +1,159 @@
+package com.chs.productservice.integration.product;
+
+import com.chs.productservice.config.RequestDbTimings;
+import com.chs.productservice.dto.ProductUpdateRequest;
+import com.chs.productservice.integration.BaseIntegrationTest;
+import com.chs.productservice.integration.UserTestData;
+import com.chs.productservice.service.ImageService;
+import com.chs.productservice.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 確認擁有者相關操作的 SQL 數量：擁有者檢查與讀取在同一個查詢完成，且不會觸發 lazy loading
+ * 直接呼叫 service，避免把每個 HTTP 請求的認證查詢算進去；storage cleanup worker 不執行，避免背景查詢被算進去
+ */
+@DisplayName("Product API - Query Count Tests")
+@TestPropertySource(properties = {
+        "product.storage-cleanup.drain-after-commit=false",
+        "product.storage-cleanup.poll-interval=1h"
+})
+public class ProductQueryCountTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UserTestData owner;
+    private UUID productId;
+
+    @BeforeEach
+    void createProduct() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+        productId = UUID.fromString(createTestProduct(owner.authHeader(), generateUniqueSku(),
+                "Product", "Description", "Manufacturer", 10));
+    }
+
+    @Test
+    @DisplayName("Should list own products with a single query")
+    void shouldListOwnProductsWithSingleQuery() {
+        statistics.clear();
+
+        productService.getProductsByUser(owner.email(), null, ProductService.DEFAULT_PAGE_SIZE);
+
+        assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("Should check ownership in the same query as the update read")
+    void shouldUpdateWithSingleRead() {
+        statistics.clear();
+
+        productService.updateProduct(productId, ProductUpdateRequest.builder().name("Renamed").build(), owner.email());
+
+        // SELECT（join users.email）+ UPDATE
+        assertStatements(2);
+    }
+
+    @Test
+    @DisplayName("Should reject other user's update with a single query")
+    void shouldRejectOtherUsersUpdateWithSingleQuery() {
+        statistics.clear();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.updateProduct(
+                productId, ProductUpdateRequest.builder().name("Hacked").build(), "someone-else@example.com"));
+
+        assertStatements(1);
+    }
+
+    @Test
+    @DisplayName("Should adjust quantity with one update and one read")
+    void shouldAdjustQuantityWithoutUserLookup() {
+        statistics.clear();
+
+        productService.adjustQuantity(productId, -1, owner.email());
+
+        // 條件式 UPDATE（擁有者以子查詢比對）+ 讀回數量
+        assertStatements(2);
+    }
+
+    @Test
+    @DisplayName("Should delete an image with a single read")
+    void shouldDeleteImageWithSingleRead() {
+        String imageId = uploadImage("front.png");
+        statistics.clear();
+
+        imageService.deleteImage(productId, UUID.fromString(imageId), owner.email());
+
+        // SELECT image（join fetch product、owner）+ DELETE + INSERT outbox
+        assertStatements(3);
+    }
+
+    @Test
+    @DisplayName("Should delete a product without lazy loads or per-image deletes")
+    void shouldDeleteProductWithoutLazyLoads() {
+        uploadImage("front.png");
+        uploadImage("back.png");
+        statistics.clear();
+
+        productService.deleteProduct(productId, owner.email());
+
+        // SELECT product（join fetch owner）+ SELECT image keys + DELETE images + DELETE product + INSERT tombstone
+        // + INSERT outbox（兩個 key 同一個 batch）
+        assertStatements(6);
+    }
+
+    @Test
+    @DisplayName("Should record connection wait and SQL time for the request")
+    void shouldRecordRequestDbTimings() {
+        RequestDbTimings.start();
+        RequestDbTimings timings;
+        try {
+            productService.updateProduct(productId, ProductUpdateRequest.builder().name("Timed").build(), owner.email());
+        } finally {
+            timings = RequestDbTimings.finish();
+        }
+
+        // 與 shouldUpdateWithSingleRead 相同的 SELECT + UPDATE，使用一條連線
+        assertThat(timings.getConnections(), equalTo(1));
+        assertThat(timings.getStatements(), equalTo(2));
+        assertThat(RequestDbTimings.finish(), nullValue());
+    }
+
+    private String uploadImage(String fileName) {
+        return given()
+                .header("Authorization", owner.authHeader())
+                .multiPart("file", fileName, new byte[]{1, 2, 3}, "image/png")
+                .when().post(PRODUCT_ENDPOINT + "/" + productId + "/image")
+                .then()
+                .statusCode(HttpStatus.CREATED.value())
+                .extract().path("imageId");
+    }
+
+    private void assertStatements(long expected) {
+        assertThat("SQL statements", statistics.getPrepareStatementCount(), equalTo(expected));
+        assertThat("lazy loads", statistics.getEntityFetchCount(), equalTo(0L));
+    }
+}
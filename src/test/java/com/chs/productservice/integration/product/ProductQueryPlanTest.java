@@ -0,0 +1,159 @@
+package com.chs.productservice.integration.product;
+
+import com.chs.productservice.dto.ProductFilterRequest;
+import com.chs.productservice.integration.BaseIntegrationTest;
+import com.chs.productservice.integration.UserTestData;
+import com.chs.productservice.service.ProductCursor;
+import com.chs.productservice.service.ProductService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * 確認每個列表篩選條件與 change feed 都由索引處理，而不是退化成全表掃描
+ * EXPLAIN 的是 Hibernate 實際產生的 SQL（由 StatementInspector 擷取），包含第二頁的 keyset cursor 與排序方向
+ * 計畫來自 H2，因此另外檢查 cursor 條件帶有可作為索引範圍起點的 >= / <= 條件
+ */
+@DisplayName("Product API - Query Plan Tests")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.chs.productservice.integration.product.ProductQueryPlanTest$CapturingStatementInspector",
+        "product.storage-cleanup.poll-interval=1h"
+})
+public class ProductQueryPlanTest extends BaseIntegrationTest {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    private static final String SECOND_PAGE = new ProductCursor(LocalDateTime.of(2024, 6, 1, 0, 0), UUID.randomUUID()).encode();
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserTestData owner;
+
+    @BeforeEach
+    void createOwner() {
+        owner = createUserAndGetData(generateUniqueEmail(), "Pass123!", "John", "Doe");
+    }
+
+    @Test
+    @DisplayName("Should use index for manufacturer filter")
+    void shouldUseIndexForManufacturerFilter() {
+        assertPagesUseIndex(ProductFilterRequest.builder().manufacturer("Acme"),
+                "idx_products_manufacturer_date_added_id");
+    }
+
+    @Test
+    @DisplayName("Should use index for owner filter")
+    void shouldUseIndexForOwnerFilter() {
+        assertPagesUseIndex(ProductFilterRequest.builder().ownerId(UUID.fromString(owner.userId())),
+                "idx_products_owner_date_added_id");
+    }
+
+    @Test
+    @DisplayName("Should use index for out of stock and quantity range filters")
+    void shouldUseIndexForQuantityFilters() {
+        assertPagesUseIndex(ProductFilterRequest.builder().quantity(0), "idx_products_quantity_date_added_id");
+        assertPagesUseIndex(ProductFilterRequest.builder().minQuantity(1).maxQuantity(5), "idx_products_quantity_date_added_id");
+    }
+
+    @Test
+    @DisplayName("Should use index for date added range filter")
+    void shouldUseIndexForDateAddedFilter() {
+        assertPagesUseIndex(ProductFilterRequest.builder()
+                        .addedAfter(LocalDateTime.of(2024, 1, 1, 0, 0))
+                        .addedBefore(LocalDateTime.of(2025, 1, 1, 0, 0)),
+                "idx_products_date_added_id");
+    }
+
+    @Test
+    @DisplayName("Should use index for change feed")
+    void shouldUseIndexForChangeFeed() {
+        List<String> statements = capture(() -> productService.getChanges(SECOND_PAGE, 100));
+
+        String changed = find(statements, "from products");
+        assertThat(changed, matchesPattern("(?is).*date_last_updated>=\\?.*"));
+        assertPlanUsesIndex(explain(changed), "idx_products_date_last_updated_id");
+
+        String deleted = find(statements, "from product_deletions");
+        assertThat(deleted, matchesPattern("(?is).*date_deleted>=\\?.*"));
+        assertPlanUsesIndex(explain(deleted), "idx_product_deletions_date_deleted_product_id");
+    }
+
+    // 以第二頁（帶 cursor）由舊到新與由新到舊各查一次
+    private void assertPagesUseIndex(ProductFilterRequest.ProductFilterRequestBuilder filter, String indexName) {
+        for (String sort : List.of("dateAdded", "-dateAdded")) {
+            List<String> statements = capture(() ->
+                    productService.getAllProducts(filter.sort(sort).build(), SECOND_PAGE, ProductService.DEFAULT_PAGE_SIZE));
+
+            String sql = find(statements, "from products");
+            String bound = sort.startsWith("-") ? "<=" : ">=";
+            assertThat(sql, matchesPattern("(?is).*date_added" + bound + "\\?.*"));
+            assertPlanUsesIndex(explain(sql), indexName);
+        }
+    }
+
+    private List<String> capture(Runnable action) {
+        STATEMENTS.clear();
+        action.run();
+        return List.copyOf(STATEMENTS);
+    }
+
+    private String find(List<String> statements, String table) {
+        return statements.stream()
+                .filter(sql -> sql.toLowerCase().contains(table + " "))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No statement on " + table + " in " + statements));
+    }
+
+    // 參數一律綁 NULL：H2 在 prepare 時就決定計畫，與參數值無關
+    private String explain(String sql) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    private void assertPlanUsesIndex(String plan, String indexName) {
+        assertThat(plan, containsStringIgnoringCase(indexName));
+        assertThat(plan, not(containsStringIgnoringCase("tableScan")));
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}